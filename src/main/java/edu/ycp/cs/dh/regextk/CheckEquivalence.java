@@ -0,0 +1,91 @@
+// RegexToolkit - A Java library for regular expressions and finite automata
+// Copyright (C) 2013, David H. Hovemeyer <david.hovemeyer@gmail.com>
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+// 
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+// IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+// CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+// TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+// SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package edu.ycp.cs.dh.regextk;
+
+/**
+ * Interface for algorithms that check an unknown FiniteAutomaton
+ * against a known one to see if they recognize the same language.
+ * 
+ * The language recognized by the unknown automaton but not the known
+ * automaton is the "overproduced" language, and the language recognized
+ * by the known automaton but not the unknown automaton is the
+ * "underproduced" language.
+ */
+public interface CheckEquivalence {
+	/**
+	 * Set the unknown FiniteAutomaton.
+	 * 
+	 * @param unknown the unknown FiniteAutomaton
+	 */
+	public void setUnknown(FiniteAutomaton unknown);
+	
+	/**
+	 * Set the known FiniteAutomaton.
+	 * 
+	 * @param known the known FiniteAutomaton
+	 */
+	public void setKnown(FiniteAutomaton known);
+	
+	/**
+	 * Check whether the unknown and known automata are equivalent.
+	 * 
+	 * @return the result of the check
+	 */
+	public EquivalenceCheckResult execute();
+	
+	/**
+	 * Get a shortest string in the overproduced language.
+	 * Must be called after {@link #execute()}.
+	 * 
+	 * @return a shortest string accepted by the unknown automaton but not
+	 *         by the known automaton, or null if there is no such string
+	 */
+	public String getOverproducedWitness();
+	
+	/**
+	 * Get a shortest string in the underproduced language.
+	 * Must be called after {@link #execute()}.
+	 * 
+	 * @return a shortest string accepted by the known automaton but not
+	 *         by the unknown automaton, or null if there is no such string
+	 */
+	public String getUnderproducedWitness();
+	
+	/**
+	 * Get a deterministic FiniteAutomaton recognizing the overproduced language.
+	 * Algorithms which do not build this automaton as part of
+	 * the check may build it on demand.
+	 * 
+	 * @return a DFA recognizing the overproduced language
+	 */
+	public FiniteAutomaton getOverproduced();
+	
+	/**
+	 * Get a deterministic FiniteAutomaton recognizing the underproduced language.
+	 * Algorithms which do not build this automaton as part of
+	 * the check may build it on demand.
+	 * 
+	 * @return a DFA recognizing the underproduced language
+	 */
+	public FiniteAutomaton getUnderproduced();
+}
@@ -0,0 +1,229 @@
+// RegexToolkit - A Java library for regular expressions and finite automata
+// Copyright (C) 2013, David H. Hovemeyer <david.hovemeyer@gmail.com>
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+// 
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+// IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+// CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+// TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+// SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package edu.ycp.cs.dh.regextk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Check equivalence by checking language inclusion in both directions,
+ * working directly on the (nondeterministic) automata using
+ * antichains with simulation-based subsumption.
+ * 
+ * To check whether L(A) is a subset of L(B), pairs (p, P) are explored,
+ * where p is a state of A and P is the set of states of B reached
+ * on the same input.  The inclusion fails if a pair is reached where
+ * p is accepting and no state in P is accepting.  A pair is not explored
+ * if some state in P simulates p (so nothing accepted from p can be
+ * rejected from P), or if it is subsumed by a pair already found, which
+ * would fail at least as soon.  Unlike the subset construction, this
+ * usually explores only a small part of the exponentially many
+ * sets of states.
+ * 
+ * Witness strings are found, but they are not necessarily the shortest
+ * possible.
+ */
+public class CheckEquivalenceAntichain implements CheckEquivalence {
+	/**
+	 * Above this total number of states, the identity relation is used
+	 * instead of computing the simulation, which needs quadratic space.
+	 */
+	public static final int MAX_SIMULATION_STATES = 2000;
+
+	private FiniteAutomaton unknown;
+	private FiniteAutomaton known;
+
+	// Both automata, without epsilon transitions, combined into a
+	// single CompactAutomaton: the unknown automaton's states first,
+	// then the known automaton's states.
+	private CompactAutomaton combined;
+	private int offset;
+	private char[] alphabet;
+	private SimulationRelation simulation;
+
+	private String overproducedWitness;
+	private String underproducedWitness;
+
+	@Override
+	public void setUnknown(FiniteAutomaton unknown) {
+		this.unknown = unknown;
+	}
+
+	@Override
+	public void setKnown(FiniteAutomaton known) {
+		this.known = known;
+	}
+
+	@Override
+	public EquivalenceCheckResult execute() {
+		CompactAutomaton a = new CompactAutomaton(unknown);
+		CompactAutomaton b = new CompactAutomaton(known);
+		offset = a.getNumStates();
+		combined = CompactAutomaton.union(a, b).withoutEpsilonTransitions();
+
+		alphabet = combined.getAlphabet();
+		if (combined.getNumStates() <= MAX_SIMULATION_STATES) {
+			simulation = SimulationRelation.forward(combined);
+		} else {
+			simulation = SimulationRelation.identity(combined.getNumStates());
+		}
+
+		overproducedWitness = findCounterexample(a.getStartState(), offset + b.getStartState());
+		underproducedWitness = findCounterexample(offset + b.getStartState(), a.getStartState());
+
+		if (overproducedWitness == null && underproducedWitness == null) {
+			return EquivalenceCheckResult.EQUIVALENT;
+		} else if (underproducedWitness == null) {
+			return EquivalenceCheckResult.OVER;
+		} else if (overproducedWitness == null) {
+			return EquivalenceCheckResult.UNDER;
+		} else {
+			return EquivalenceCheckResult.OVER_AND_UNDER;
+		}
+	}
+
+	@Override
+	public String getOverproducedWitness() {
+		return overproducedWitness;
+	}
+
+	@Override
+	public String getUnderproducedWitness() {
+		return underproducedWitness;
+	}
+
+	@Override
+	public FiniteAutomaton getOverproduced() {
+		return FiniteAutomatonUtil.difference(unknown, known);
+	}
+
+	@Override
+	public FiniteAutomaton getUnderproduced() {
+		return FiniteAutomatonUtil.difference(known, unknown);
+	}
+
+	// Search for a string accepted from state p but not from state q.
+	private String findCounterexample(int p0, int q0) {
+		int n = combined.getNumStates();
+
+		// pairs found so far, indexed by their first state; every pair
+		// found is also in the breadth-first queue
+		List<List<StateSet>> pairsByState = new ArrayList<List<StateSet>>();
+		for (int s = 0; s < n; s++) {
+			pairsByState.add(new ArrayList<StateSet>());
+		}
+
+		int capacity = 16;
+		int[] first = new int[capacity];
+		StateSet[] second = new StateSet[capacity];
+		int[] from = new int[capacity];
+		char[] symbol = new char[capacity];
+		int count = 0;
+
+		StateSet initial = new StateSet(n);
+		initial.add(q0);
+		if (isSubsumed(p0, initial, pairsByState)) {
+			return null;
+		}
+		first[0] = p0;
+		second[0] = initial;
+		from[0] = -1;
+		pairsByState.get(p0).add(initial);
+		count++;
+
+		for (int head = 0; head < count; head++) {
+			int p = first[head];
+			StateSet pSet = second[head];
+			if (combined.isAccepting(p) && !FiniteAutomatonUtil.containsAcceptingState(combined, pSet)) {
+				return witness(head, from, symbol);
+			}
+
+			for (char c : alphabet) {
+				int end = combined.getTransitionEnd(p);
+				int i = combined.findTransition(p, c);
+				if (i >= end || combined.getSymbol(i) != c) {
+					continue;
+				}
+				StateSet nextSet = FiniteAutomatonUtil.followAll(combined, pSet, c);
+				for (; i < end && combined.getSymbol(i) == c; i++) {
+					int next = combined.getTarget(i);
+					if (isSubsumed(next, nextSet, pairsByState)) {
+						continue;
+					}
+					if (count == capacity) {
+						capacity *= 2;
+						first = Arrays.copyOf(first, capacity);
+						second = Arrays.copyOf(second, capacity);
+						from = Arrays.copyOf(from, capacity);
+						symbol = Arrays.copyOf(symbol, capacity);
+					}
+					first[count] = next;
+					second[count] = nextSet;
+					from[count] = head;
+					symbol[count] = c;
+					pairsByState.get(next).add(nextSet);
+					count++;
+				}
+			}
+		}
+
+		return null;
+	}
+
+	// A pair (p, P) need not be explored if a state in P simulates p,
+	// or if a pair (r, R) has already been found such that r simulates p
+	// and every state in R is simulated by some state in P: any string
+	// showing that (p, P) fails also shows that (r, R) fails.
+	private boolean isSubsumed(int p, StateSet pSet, List<List<StateSet>> pairsByState) {
+		StateSet simulators = simulation.getSimulators(p);
+		if (simulators.intersects(pSet)) {
+			return true;
+		}
+		for (int r = simulators.nextState(0); r >= 0; r = simulators.nextState(r + 1)) {
+			for (StateSet rSet : pairsByState.get(r)) {
+				if (isCoveredBy(rSet, pSet)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private boolean isCoveredBy(StateSet rSet, StateSet pSet) {
+		for (int r = rSet.nextState(0); r >= 0; r = rSet.nextState(r + 1)) {
+			if (!simulation.getSimulators(r).intersects(pSet)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static String witness(int index, int[] from, char[] symbol) {
+		StringBuilder buf = new StringBuilder();
+		for (int i = index; from[i] >= 0; i = from[i]) {
+			buf.append(symbol[i]);
+		}
+		return buf.reverse().toString();
+	}
+}
@@ -0,0 +1,102 @@
+// RegexToolkit - A Java library for regular expressions and finite automata
+// Copyright (C) 2013, David H. Hovemeyer <david.hovemeyer@gmail.com>
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+// 
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+// IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+// CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+// TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+// SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package edu.ycp.cs.dh.regextk;
+
+/**
+ * Check equivalence by checking whether the overproduced and underproduced
+ * languages are empty.  The emptiness checks explore the products
+ * of each automaton with the complement of the other on the fly
+ * (see {@link LazyDifference}), so automata recognizing the overproduced
+ * and underproduced languages are only built on demand.
+ */
+public class CheckEquivalenceByDifference implements CheckEquivalence {
+	private FiniteAutomaton unknown;
+	private FiniteAutomaton known;
+	private LazyDifference over;
+	private LazyDifference under;
+
+	@Override
+	public void setUnknown(FiniteAutomaton unknown) {
+		this.unknown = unknown;
+	}
+
+	@Override
+	public void setKnown(FiniteAutomaton known) {
+		this.known = known;
+	}
+
+	@Override
+	public EquivalenceCheckResult execute() {
+		this.over = new LazyDifference(unknown, known);
+		this.under = new LazyDifference(known, unknown);
+
+		boolean over = !this.over.isEmpty();
+		boolean under = !this.under.isEmpty();
+
+		if (!over && !under) {
+			return EquivalenceCheckResult.EQUIVALENT;
+		} else if (!over) {
+			return EquivalenceCheckResult.UNDER;
+		} else if (!under) {
+			return EquivalenceCheckResult.OVER;
+		} else {
+			return EquivalenceCheckResult.OVER_AND_UNDER;
+		}
+	}
+
+	@Override
+	public String getOverproducedWitness() {
+		return over.getWitness();
+	}
+
+	@Override
+	public String getUnderproducedWitness() {
+		return under.getWitness();
+	}
+
+	/**
+	 * @return the LazyDifference used to check for overproduced strings
+	 *         (the unknown automaton minus the known automaton)
+	 */
+	public LazyDifference getOverproducedDifference() {
+		return over;
+	}
+
+	/**
+	 * @return the LazyDifference used to check for underproduced strings
+	 *         (the known automaton minus the unknown automaton)
+	 */
+	public LazyDifference getUnderproducedDifference() {
+		return under;
+	}
+
+	@Override
+	public FiniteAutomaton getOverproduced() {
+		return FiniteAutomatonUtil.difference(unknown, known);
+	}
+
+	@Override
+	public FiniteAutomaton getUnderproduced() {
+		return FiniteAutomatonUtil.difference(known, unknown);
+	}
+}
@@ -0,0 +1,252 @@
+// RegexToolkit - A Java library for regular expressions and finite automata
+// Copyright (C) 2013, David H. Hovemeyer <david.hovemeyer@gmail.com>
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+// 
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+// IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+// CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+// TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+// SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package edu.ycp.cs.dh.regextk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Check equivalence using HKC, bisimulation up to congruence
+ * (Bonchi and Pous, 2013).
+ * 
+ * Pairs of sets of states of the two automata are explored from the
+ * pair of start sets, as if both automata were being determinized,
+ * but the sets of states are built only as they are reached.
+ * A pair is skipped if the two sets are already known to be equivalent
+ * by the congruence closure of the pairs processed so far: for example,
+ * once (X1, Y1) and (X2, Y2) have been processed, (X1 + X2, Y1 + Y2)
+ * need not be.  This usually explores far fewer pairs than the subset
+ * construction would create states.
+ * 
+ * The automata are first combined and their epsilon transitions removed.
+ * The pruning is made more effective by also using a simulation
+ * preorder on the combined automaton: a set of states is equivalent to
+ * the same set with every state simulated by one of its states added,
+ * so two sets are skipped when this, together with the congruence closure,
+ * makes them equal (HKC up to similarity).
+ * 
+ * When the automata are not equivalent, language inclusion is checked
+ * in each direction (L(A) is a subset of L(B) exactly when A + B is
+ * equivalent to B) to find a witness string for the overproduced and
+ * underproduced languages.  The witnesses are not necessarily the
+ * shortest possible.
+ */
+public class CheckEquivalenceHKC implements CheckEquivalence {
+	private FiniteAutomaton unknown;
+	private FiniteAutomaton known;
+
+	// Both automata combined, without epsilon transitions: the unknown
+	// automaton's states first, then the known automaton's states
+	private CompactAutomaton combined;
+	private char[] alphabet;
+
+	// for each state, the states it simulates
+	private StateSet[] simulated;
+
+	private String overproducedWitness;
+	private String underproducedWitness;
+
+	@Override
+	public void setUnknown(FiniteAutomaton unknown) {
+		this.unknown = unknown;
+	}
+
+	@Override
+	public void setKnown(FiniteAutomaton known) {
+		this.known = known;
+	}
+
+	@Override
+	public EquivalenceCheckResult execute() {
+		CompactAutomaton a = new CompactAutomaton(unknown);
+		CompactAutomaton b = new CompactAutomaton(known);
+		combined = CompactAutomaton.union(a, b).withoutEpsilonTransitions();
+		alphabet = combined.getAlphabet();
+		computeSimulated();
+
+		StateSet x = new StateSet(combined.getNumStates());
+		x.add(a.getStartState());
+		StateSet y = new StateSet(combined.getNumStates());
+		y.add(a.getNumStates() + b.getStartState());
+
+		overproducedWitness = null;
+		underproducedWitness = null;
+
+		if (findCounterexample(x, y) == null) {
+			return EquivalenceCheckResult.EQUIVALENT;
+		}
+
+		StateSet xy = new StateSet(x);
+		xy.addAll(y);
+		overproducedWitness = findCounterexample(xy, y);
+		underproducedWitness = findCounterexample(xy, x);
+
+		if (underproducedWitness == null) {
+			return EquivalenceCheckResult.OVER;
+		} else if (overproducedWitness == null) {
+			return EquivalenceCheckResult.UNDER;
+		} else {
+			return EquivalenceCheckResult.OVER_AND_UNDER;
+		}
+	}
+
+	@Override
+	public String getOverproducedWitness() {
+		return overproducedWitness;
+	}
+
+	@Override
+	public String getUnderproducedWitness() {
+		return underproducedWitness;
+	}
+
+	@Override
+	public FiniteAutomaton getOverproduced() {
+		return FiniteAutomatonUtil.difference(unknown, known);
+	}
+
+	@Override
+	public FiniteAutomaton getUnderproduced() {
+		return FiniteAutomatonUtil.difference(known, unknown);
+	}
+
+	private void computeSimulated() {
+		int n = combined.getNumStates();
+		SimulationRelation simulation;
+		if (n <= CheckEquivalenceAntichain.MAX_SIMULATION_STATES) {
+			simulation = SimulationRelation.forward(combined);
+		} else {
+			simulation = SimulationRelation.identity(n);
+		}
+		simulated = new StateSet[n];
+		for (int q = 0; q < n; q++) {
+			simulated[q] = new StateSet(n);
+		}
+		for (int p = 0; p < n; p++) {
+			StateSet simulators = simulation.getSimulators(p);
+			for (int q = simulators.nextState(0); q >= 0; q = simulators.nextState(q + 1)) {
+				simulated[q].add(p);
+			}
+		}
+	}
+
+	// Search for a string accepted from exactly one of the two sets of states.
+	private String findCounterexample(StateSet x0, StateSet y0) {
+		// pairs processed so far
+		List<StateSet> relLeft = new ArrayList<StateSet>();
+		List<StateSet> relRight = new ArrayList<StateSet>();
+
+		// breadth-first queue of pairs, recording for each pair the
+		// pair it was reached from and the symbol consumed
+		int capacity = 16;
+		StateSet[] xs = new StateSet[capacity];
+		StateSet[] ys = new StateSet[capacity];
+		int[] from = new int[capacity];
+		char[] symbol = new char[capacity];
+		int count = 0;
+
+		xs[0] = x0;
+		ys[0] = y0;
+		from[0] = -1;
+		count++;
+
+		for (int head = 0; head < count; head++) {
+			StateSet x = xs[head], y = ys[head];
+			if (isCongruent(x, y, relLeft, relRight)) {
+				continue;
+			}
+			if (FiniteAutomatonUtil.containsAcceptingState(combined, x) != FiniteAutomatonUtil.containsAcceptingState(combined, y)) {
+				return witness(head, from, symbol);
+			}
+			relLeft.add(x);
+			relRight.add(y);
+
+			for (char c : alphabet) {
+				StateSet xc = FiniteAutomatonUtil.followAll(combined, x, c);
+				StateSet yc = FiniteAutomatonUtil.followAll(combined, y, c);
+				if (count == capacity) {
+					capacity *= 2;
+					xs = Arrays.copyOf(xs, capacity);
+					ys = Arrays.copyOf(ys, capacity);
+					from = Arrays.copyOf(from, capacity);
+					symbol = Arrays.copyOf(symbol, capacity);
+				}
+				xs[count] = xc;
+				ys[count] = yc;
+				from[count] = head;
+				symbol[count] = c;
+				count++;
+			}
+		}
+
+		return null;
+	}
+
+	// Two sets are related by the congruence closure of the relation
+	// exactly when they have the same normal form, which is the case
+	// when each is contained in the normal form of the other.
+	private boolean isCongruent(StateSet x, StateSet y, List<StateSet> relLeft, List<StateSet> relRight) {
+		if (x.equals(y)) {
+			return true;
+		}
+		StateSet xNorm = normalForm(x, relLeft, relRight);
+		if (!xNorm.containsAll(y)) {
+			return false;
+		}
+		StateSet yNorm = normalForm(y, relLeft, relRight);
+		return yNorm.containsAll(x);
+	}
+
+	// The normal form of a set is the largest set it can be rewritten
+	// to by the rules U -> U + V and V -> U + V for each pair (U, V)
+	// in the relation, and by adding the states simulated by its states.
+	private StateSet normalForm(StateSet s, List<StateSet> relLeft, List<StateSet> relRight) {
+		StateSet result = new StateSet(s);
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int q = result.nextState(0); q >= 0; q = result.nextState(q + 1)) {
+				result.addAll(simulated[q]);
+			}
+			for (int i = 0; i < relLeft.size(); i++) {
+				StateSet u = relLeft.get(i), v = relRight.get(i);
+				if (result.containsAll(u) && result.addAll(v)) {
+					changed = true;
+				}
+				if (result.containsAll(v) && result.addAll(u)) {
+					changed = true;
+				}
+			}
+		}
+		return result;
+	}
+
+	private static String witness(int index, int[] from, char[] symbol) {
+		StringBuilder buf = new StringBuilder();
+		for (int i = index; from[i] >= 0; i = from[i]) {
+			buf.append(symbol[i]);
+		}
+		return buf.reverse().toString();
+	}
+}
@@ -0,0 +1,250 @@
+// RegexToolkit - A Java library for regular expressions and finite automata
+// Copyright (C) 2013, David H. Hovemeyer <david.hovemeyer@gmail.com>
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+// 
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+// IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+// CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+// TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+// SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package edu.ycp.cs.dh.regextk;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Check equivalence using the Hopcroft-Karp algorithm:
+ * pairs of states of the two (deterministic) automata are explored
+ * from the pair of start states, and a union-find structure records
+ * which states are known to be equivalent, so that each state is merged
+ * at most once.  When the automata are equivalent, this takes nearly
+ * linear time, and no product automaton is built.
+ * 
+ * When the automata are not equivalent, the reachable pairs of states are
+ * searched breadth-first to find a shortest witness string for the
+ * overproduced and underproduced languages.
+ */
+public class CheckEquivalenceHopcroftKarp implements CheckEquivalence {
+	private FiniteAutomaton unknown;
+	private FiniteAutomaton known;
+
+	// The states of both DFAs are numbered consecutively: the unknown
+	// automaton's states first, then the known automaton's states,
+	// then a single reject state used for missing transitions.
+	private CompactAutomaton[] dfas;
+	private int offset;
+	private int reject;
+	private char[] alphabet;
+
+	private String overproducedWitness;
+	private String underproducedWitness;
+
+	@Override
+	public void setUnknown(FiniteAutomaton unknown) {
+		this.unknown = unknown;
+	}
+
+	@Override
+	public void setKnown(FiniteAutomaton known) {
+		this.known = known;
+	}
+
+	@Override
+	public EquivalenceCheckResult execute() {
+		dfas = new CompactAutomaton[] { toCompactDFA(unknown), toCompactDFA(known) };
+		offset = dfas[0].getNumStates();
+		reject = offset + dfas[1].getNumStates();
+
+		Set<Character> universalAlphabet = FiniteAutomatonUtil.getAlphabet(unknown);
+		universalAlphabet.addAll(FiniteAutomatonUtil.getAlphabet(known));
+		alphabet = new char[universalAlphabet.size()];
+		int i = 0;
+		for (char c : universalAlphabet) {
+			alphabet[i++] = c;
+		}
+
+		overproducedWitness = null;
+		underproducedWitness = null;
+
+		if (equivalent()) {
+			return EquivalenceCheckResult.EQUIVALENT;
+		}
+
+		findWitnesses();
+		if (underproducedWitness == null) {
+			return EquivalenceCheckResult.OVER;
+		} else if (overproducedWitness == null) {
+			return EquivalenceCheckResult.UNDER;
+		} else {
+			return EquivalenceCheckResult.OVER_AND_UNDER;
+		}
+	}
+
+	@Override
+	public String getOverproducedWitness() {
+		return overproducedWitness;
+	}
+
+	@Override
+	public String getUnderproducedWitness() {
+		return underproducedWitness;
+	}
+
+	@Override
+	public FiniteAutomaton getOverproduced() {
+		return FiniteAutomatonUtil.difference(unknown, known);
+	}
+
+	@Override
+	public FiniteAutomaton getUnderproduced() {
+		return FiniteAutomatonUtil.difference(known, unknown);
+	}
+
+	private static CompactAutomaton toCompactDFA(FiniteAutomaton fa) {
+		if (!FiniteAutomatonUtil.isDeterministic(fa)) {
+			fa = FiniteAutomatonUtil.convertToDFA(fa);
+		}
+		return new CompactAutomaton(fa);
+	}
+
+	private boolean equivalent() {
+		int[] parent = new int[reject + 1];
+		for (int s = 0; s <= reject; s++) {
+			parent[s] = s;
+		}
+
+		// Each pair pushed merges two equivalence classes, so fewer
+		// pairs than there are states are ever pushed.
+		int[] work = new int[2 * (reject + 1)];
+		int top = 0;
+
+		int p0 = dfas[0].getStartState(), q0 = offset + dfas[1].getStartState();
+		parent[p0] = q0;
+		work[top++] = p0;
+		work[top++] = q0;
+
+		while (top > 0) {
+			int q = work[--top];
+			int p = work[--top];
+			if (isAccepting(p) != isAccepting(q)) {
+				return false;
+			}
+			for (char c : alphabet) {
+				int pc = step(p, c), qc = step(q, c);
+				int pr = find(parent, pc), qr = find(parent, qc);
+				if (pr != qr) {
+					parent[pr] = qr;
+					work[top++] = pc;
+					work[top++] = qc;
+				}
+			}
+		}
+
+		return true;
+	}
+
+	private static int find(int[] parent, int s) {
+		while (parent[s] != s) {
+			parent[s] = parent[parent[s]];
+			s = parent[s];
+		}
+		return s;
+	}
+
+	private void findWitnesses() {
+		// breadth-first search of reachable pairs of states, recording
+		// for each pair the pair it was reached from and the symbol consumed
+		int capacity = 16;
+		int[] pairs = new int[2 * capacity];
+		int[] from = new int[capacity];
+		char[] symbol = new char[capacity];
+		Set<Long> seen = new HashSet<Long>();
+
+		int count = 0;
+		pairs[0] = dfas[0].getStartState();
+		pairs[1] = offset + dfas[1].getStartState();
+		from[0] = -1;
+		seen.add(key(pairs[0], pairs[1]));
+		count++;
+
+		for (int head = 0; head < count; head++) {
+			int p = pairs[2 * head], q = pairs[2 * head + 1];
+			if (overproducedWitness == null && isAccepting(p) && !isAccepting(q)) {
+				overproducedWitness = witness(head, from, symbol);
+			}
+			if (underproducedWitness == null && !isAccepting(p) && isAccepting(q)) {
+				underproducedWitness = witness(head, from, symbol);
+			}
+			if (overproducedWitness != null && underproducedWitness != null) {
+				return;
+			}
+
+			for (char c : alphabet) {
+				int pc = step(p, c), qc = step(q, c);
+				if (pc == reject && qc == reject) {
+					continue;
+				}
+				if (seen.add(key(pc, qc))) {
+					if (count == capacity) {
+						capacity *= 2;
+						pairs = Arrays.copyOf(pairs, 2 * capacity);
+						from = Arrays.copyOf(from, capacity);
+						symbol = Arrays.copyOf(symbol, capacity);
+					}
+					pairs[2 * count] = pc;
+					pairs[2 * count + 1] = qc;
+					from[count] = head;
+					symbol[count] = c;
+					count++;
+				}
+			}
+		}
+	}
+
+	private static long key(int p, int q) {
+		return ((long) p << 32) | q;
+	}
+
+	private static String witness(int index, int[] from, char[] symbol) {
+		StringBuilder buf = new StringBuilder();
+		for (int i = index; from[i] >= 0; i = from[i]) {
+			buf.append(symbol[i]);
+		}
+		return buf.reverse().toString();
+	}
+
+	private boolean isAccepting(int s) {
+		if (s == reject) {
+			return false;
+		}
+		return s < offset ? dfas[0].isAccepting(s) : dfas[1].isAccepting(s - offset);
+	}
+
+	private int step(int s, char c) {
+		if (s == reject) {
+			return reject;
+		}
+		CompactAutomaton dfa = s < offset ? dfas[0] : dfas[1];
+		int base = s < offset ? 0 : offset;
+		int local = s - base;
+		int t = dfa.findTransition(local, c);
+		if (t >= dfa.getTransitionEnd(local) || dfa.getSymbol(t) != c) {
+			return reject;
+		}
+		return base + dfa.getTarget(t);
+	}
+}
@@ -0,0 +1,324 @@
+// RegexToolkit - A Java library for regular expressions and finite automata
+// Copyright (C) 2013, David H. Hovemeyer <david.hovemeyer@gmail.com>
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+// 
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+// IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+// CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+// TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+// SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package edu.ycp.cs.dh.regextk;
+
+import java.util.Arrays;
+
+/**
+ * Precomputed epsilon closures of the states of an automaton.
+ * 
+ * The strongly connected components of the graph of epsilon transitions
+ * are found using Tarjan's algorithm: all states in a component have the
+ * same closure.  The index stores the members of each component, and the
+ * epsilon transitions between components (the condensed graph, which is
+ * acyclic), so it takes space linear in the size of the automaton.
+ * The closure of a set of states is found by walking the condensed
+ * graph from the components of its members, visiting each component once.
+ * 
+ * A ClosureIndex describes the automaton at the time it was built:
+ * {@link FiniteAutomaton#getClosureIndex()} and
+ * {@link CompactAutomaton#getClosureIndex()} return an index which is
+ * kept up to date.
+ */
+public class ClosureIndex {
+	private int numStates;
+	private int numComponents;
+	private boolean epsilonTransitions;
+
+	// component number of each state
+	private int[] component;
+
+	// states in component c are
+	// members[memberStart[c]] .. members[memberStart[c+1]-1]
+	private int[] memberStart;
+	private int[] members;
+
+	// components reached from component c by epsilon transitions are
+	// componentEdges[componentEdgeStart[c]] .. componentEdges[componentEdgeStart[c+1]-1]
+	private int[] componentEdgeStart;
+	private int[] componentEdges;
+
+	/**
+	 * Build the closure index for a {@link CompactAutomaton}.
+	 * 
+	 * @param ca a CompactAutomaton
+	 */
+	public ClosureIndex(CompactAutomaton ca) {
+		this.numStates = ca.getNumStates();
+
+		// extract the epsilon transitions
+		int[] edgeStart = new int[numStates + 1];
+		int[] edges = new int[ca.getNumTransitions()];
+		int numEdges = 0;
+		for (int s = 0; s < numStates; s++) {
+			edgeStart[s] = numEdges;
+			int end = ca.getTransitionEnd(s);
+			for (int i = ca.findTransition(s, FiniteAutomaton.EPSILON); i < end && ca.getSymbol(i) == FiniteAutomaton.EPSILON; i++) {
+				edges[numEdges++] = ca.getTarget(i);
+			}
+		}
+		edgeStart[numStates] = numEdges;
+
+		build(edgeStart, edges);
+	}
+
+	/**
+	 * Build the closure index for a {@link FiniteAutomaton}.
+	 * 
+	 * @param fa a FiniteAutomaton
+	 */
+	public ClosureIndex(FiniteAutomaton fa) {
+		this.numStates = fa.getNumStates();
+
+		// extract the epsilon transitions
+		int[] edgeStart = new int[numStates + 1];
+		for (Transition t : fa.getAllTransitions()) {
+			if (t.getSymbol() == FiniteAutomaton.EPSILON) {
+				edgeStart[t.getFromState().getNumber() + 1]++;
+			}
+		}
+		for (int s = 0; s < numStates; s++) {
+			edgeStart[s + 1] += edgeStart[s];
+		}
+		int[] edges = new int[edgeStart[numStates]];
+		int[] fill = Arrays.copyOf(edgeStart, numStates);
+		for (Transition t : fa.getAllTransitions()) {
+			if (t.getSymbol() == FiniteAutomaton.EPSILON) {
+				edges[fill[t.getFromState().getNumber()]++] = t.getToState().getNumber();
+			}
+		}
+
+		build(edgeStart, edges);
+	}
+
+	private void build(int[] edgeStart, int[] edges) {
+		epsilonTransitions = edgeStart[numStates] > 0;
+
+		// Tarjan's algorithm, without recursion: components are numbered
+		// in the order they are completed, so every epsilon transition out
+		// of a component leads to a component with a smaller number
+		// (or to the same component)
+		component = new int[numStates];
+		Arrays.fill(component, -1);
+		int[] index = new int[numStates];
+		int[] lowLink = new int[numStates];
+		Arrays.fill(index, -1);
+		int[] sccStack = new int[numStates];
+		int sccTop = 0;
+		boolean[] onStack = new boolean[numStates];
+		int[] callStack = new int[numStates];
+		int[] nextEdge = new int[numStates];
+		int nextIndex = 0;
+		numComponents = 0;
+
+		for (int root = 0; root < numStates; root++) {
+			if (index[root] >= 0) {
+				continue;
+			}
+			int callTop = 0;
+			callStack[callTop++] = root;
+			index[root] = lowLink[root] = nextIndex++;
+			nextEdge[root] = edgeStart[root];
+			sccStack[sccTop++] = root;
+			onStack[root] = true;
+
+			while (callTop > 0) {
+				int s = callStack[callTop - 1];
+				if (nextEdge[s] < edgeStart[s + 1]) {
+					int t = edges[nextEdge[s]++];
+					if (index[t] < 0) {
+						index[t] = lowLink[t] = nextIndex++;
+						nextEdge[t] = edgeStart[t];
+						sccStack[sccTop++] = t;
+						onStack[t] = true;
+						callStack[callTop++] = t;
+					} else if (onStack[t]) {
+						lowLink[s] = Math.min(lowLink[s], index[t]);
+					}
+					continue;
+				}
+
+				// all edges out of s have been followed
+				callTop--;
+				if (callTop > 0) {
+					int parent = callStack[callTop - 1];
+					lowLink[parent] = Math.min(lowLink[parent], lowLink[s]);
+				}
+				if (lowLink[s] == index[s]) {
+					int t;
+					do {
+						t = sccStack[--sccTop];
+						onStack[t] = false;
+						component[t] = numComponents;
+					} while (t != s);
+					numComponents++;
+				}
+			}
+		}
+
+		// list the members of each component
+		memberStart = new int[numComponents + 1];
+		for (int s = 0; s < numStates; s++) {
+			memberStart[component[s] + 1]++;
+		}
+		for (int c = 0; c < numComponents; c++) {
+			memberStart[c + 1] += memberStart[c];
+		}
+		members = new int[numStates];
+		int[] fill = Arrays.copyOf(memberStart, numComponents);
+		for (int s = 0; s < numStates; s++) {
+			members[fill[component[s]]++] = s;
+		}
+
+		// list the (distinct) components reached from each component
+		componentEdgeStart = new int[numComponents + 1];
+		componentEdges = new int[edges.length];
+		int numComponentEdges = 0;
+		int[] mark = new int[numComponents];
+		Arrays.fill(mark, -1);
+		for (int c = 0; c < numComponents; c++) {
+			componentEdgeStart[c] = numComponentEdges;
+			mark[c] = c;
+			for (int i = memberStart[c]; i < memberStart[c + 1]; i++) {
+				int s = members[i];
+				for (int e = edgeStart[s]; e < edgeStart[s + 1]; e++) {
+					int d = component[edges[e]];
+					if (mark[d] != c) {
+						mark[d] = c;
+						componentEdges[numComponentEdges++] = d;
+					}
+				}
+			}
+		}
+		componentEdgeStart[numComponents] = numComponentEdges;
+		componentEdges = Arrays.copyOf(componentEdges, numComponentEdges);
+	}
+
+	/**
+	 * @return the number of states of the automaton the index was built for
+	 */
+	public int getNumStates() {
+		return numStates;
+	}
+
+	/**
+	 * @return true if the automaton the index was built for has
+	 *         at least one epsilon transition, false otherwise
+	 */
+	public boolean hasEpsilonTransitions() {
+		return epsilonTransitions;
+	}
+
+	/**
+	 * @return the number of strongly connected components of the
+	 *         graph of epsilon transitions
+	 */
+	public int getNumComponents() {
+		return numComponents;
+	}
+
+	/**
+	 * Get the strongly connected component containing a state.
+	 * Components are numbered so that every epsilon transition leads
+	 * to a state in the same component or in a lower-numbered component.
+	 * 
+	 * @param s a state number
+	 * @return the component number
+	 */
+	public int getComponent(int s) {
+		return component[s];
+	}
+
+	/**
+	 * Determine whether two states are in the same strongly connected
+	 * component of the graph of epsilon transitions (that is, each is
+	 * reachable from the other by epsilon transitions.)
+	 * 
+	 * @param s a state number
+	 * @param t a state number
+	 * @return true if the states are in the same component, false otherwise
+	 */
+	public boolean isSameComponent(int s, int t) {
+		return component[s] == component[t];
+	}
+
+	/**
+	 * Add the closure of a state to a set of states.
+	 * 
+	 * @param s      a state number
+	 * @param result the StateSet to add the closure to
+	 */
+	public void addClosure(int s, StateSet result) {
+		StateSet single = new StateSet(numStates);
+		single.add(s);
+		result.addAll(closure(single));
+	}
+
+	/**
+	 * Compute the closure of a set of states.
+	 * 
+	 * @param current a set of states
+	 * @return the closure of the set of states
+	 */
+	public StateSet closure(StateSet current) {
+		if (!epsilonTransitions) {
+			return new StateSet(current);
+		}
+
+		// depth-first search of the condensed graph: the members of a
+		// component are added to the result when it is first reached,
+		// so a component has been reached if its first member is in
+		// the result
+		StateSet result = new StateSet(numStates);
+		int[] stack = new int[16];
+		int top = 0;
+		for (int s = current.nextState(0); s >= 0; s = current.nextState(s + 1)) {
+			if (!result.contains(s)) {
+				stack = push(component[s], stack, top++, result);
+			}
+		}
+		while (top > 0) {
+			int c = stack[--top];
+			for (int e = componentEdgeStart[c]; e < componentEdgeStart[c + 1]; e++) {
+				int d = componentEdges[e];
+				if (!result.contains(members[memberStart[d]])) {
+					stack = push(d, stack, top++, result);
+				}
+			}
+		}
+		return result;
+	}
+
+	// Add the members of component c to result, and push c
+	// onto the stack (which is returned, since it may grow).
+	private int[] push(int c, int[] stack, int top, StateSet result) {
+		for (int i = memberStart[c]; i < memberStart[c + 1]; i++) {
+			result.add(members[i]);
+		}
+		if (top == stack.length) {
+			stack = Arrays.copyOf(stack, 2 * top);
+		}
+		stack[top] = c;
+		return stack;
+	}
+}
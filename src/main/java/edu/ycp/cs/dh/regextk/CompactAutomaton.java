@@ -0,0 +1,375 @@
+// RegexToolkit - A Java library for regular expressions and finite automata
+// Copyright (C) 2013, David H. Hovemeyer <david.hovemeyer@gmail.com>
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+// 
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+// IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+// CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+// TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+// SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package edu.ycp.cs.dh.regextk;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A frozen, compact snapshot of a {@link FiniteAutomaton}.
+ * States are identified by their state numbers, and the transitions
+ * are stored in compressed sparse row form: the transitions out of
+ * state <i>s</i> occupy the indices from {@link #getTransitionStart(int)}
+ * (inclusive) to {@link #getTransitionEnd(int)} (exclusive), sorted by
+ * symbol, so the transitions on a particular symbol can be found
+ * by binary search.
+ * 
+ * A CompactAutomaton is not affected by later changes to the
+ * FiniteAutomaton it was built from.  Use {@link #toFiniteAutomaton()}
+ * to convert it back to a (mutable) FiniteAutomaton.
+ */
+public class CompactAutomaton {
+	private int numStates;
+	private int startState;
+	private int[] offsets;
+	private int[] targets;
+	private char[] symbols;
+	private long[] accepting;
+	private char[] alphabet;
+	private volatile ClosureIndex closureIndex;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param fa the FiniteAutomaton to build a compact snapshot of
+	 */
+	public CompactAutomaton(FiniteAutomaton fa) {
+		List<State> stateList = fa.getStates();
+
+		this.numStates = stateList.size();
+		this.startState = fa.getStartState().getNumber();
+		this.accepting = new long[(numStates + 63) >>> 6];
+		for (State s : stateList) {
+			if (s.isAccepting()) {
+				accepting[s.getNumber() >>> 6] |= 1L << s.getNumber();
+			}
+		}
+
+		// count the transitions out of each state
+		this.offsets = new int[numStates + 1];
+		for (State s : stateList) {
+			offsets[s.getNumber() + 1] = fa.getTransitions(s).size();
+		}
+		for (int i = 0; i < numStates; i++) {
+			offsets[i + 1] += offsets[i];
+		}
+
+		// fill in each row, sorted by symbol (and then by target state)
+		int numTransitions = offsets[numStates];
+		this.targets = new int[numTransitions];
+		this.symbols = new char[numTransitions];
+		long[] row = new long[0];
+		boolean[] used = new boolean[65536];
+		int alphabetSize = 0;
+		for (State s : stateList) {
+			List<Transition> transitions = fa.getTransitions(s);
+			if (row.length < transitions.size()) {
+				row = new long[transitions.size()];
+			}
+			int n = 0;
+			for (Transition t : transitions) {
+				row[n++] = ((long) t.getSymbol() << 32) | t.getToState().getNumber();
+			}
+			Arrays.sort(row, 0, n);
+			int base = offsets[s.getNumber()];
+			for (int i = 0; i < n; i++) {
+				char sym = (char) (row[i] >>> 32);
+				symbols[base + i] = sym;
+				targets[base + i] = (int) row[i];
+				if (sym != FiniteAutomaton.EPSILON && !used[sym]) {
+					used[sym] = true;
+					alphabetSize++;
+				}
+			}
+		}
+
+		// record the alphabet in sorted order
+		this.alphabet = new char[alphabetSize];
+		int n = 0;
+		for (int c = 0; c < used.length; c++) {
+			if (used[c]) {
+				alphabet[n++] = (char) c;
+			}
+		}
+	}
+
+	private CompactAutomaton() {
+	}
+
+	/**
+	 * Combine two CompactAutomata into one, without connecting them.
+	 * The states of the first automaton keep their numbers, and the
+	 * states of the second are numbered after them (so state <i>s</i>
+	 * of the second automaton becomes state <i>s</i> plus the number of
+	 * states in the first automaton.)  The start state of the result is the
+	 * start state of the first automaton.
+	 * 
+	 * @param a the first CompactAutomaton
+	 * @param b the second CompactAutomaton
+	 * @return the combined CompactAutomaton
+	 */
+	public static CompactAutomaton union(CompactAutomaton a, CompactAutomaton b) {
+		CompactAutomaton result = new CompactAutomaton();
+		int offset = a.numStates;
+		result.numStates = a.numStates + b.numStates;
+		result.startState = a.startState;
+
+		result.accepting = new long[(result.numStates + 63) >>> 6];
+		System.arraycopy(a.accepting, 0, result.accepting, 0, a.accepting.length);
+		for (int s = 0; s < b.numStates; s++) {
+			if (b.isAccepting(s)) {
+				result.accepting[(offset + s) >>> 6] |= 1L << (offset + s);
+			}
+		}
+
+		int numTransitions = a.targets.length + b.targets.length;
+		result.offsets = Arrays.copyOf(a.offsets, result.numStates + 1);
+		for (int s = 1; s <= b.numStates; s++) {
+			result.offsets[offset + s] = a.targets.length + b.offsets[s];
+		}
+		result.targets = Arrays.copyOf(a.targets, numTransitions);
+		result.symbols = Arrays.copyOf(a.symbols, numTransitions);
+		for (int i = 0; i < b.targets.length; i++) {
+			result.targets[a.targets.length + i] = offset + b.targets[i];
+			result.symbols[a.targets.length + i] = b.symbols[i];
+		}
+
+		// merge the (sorted) alphabets
+		char[] alphabet = new char[a.alphabet.length + b.alphabet.length];
+		int i = 0, j = 0, n = 0;
+		while (i < a.alphabet.length || j < b.alphabet.length) {
+			if (j == b.alphabet.length || (i < a.alphabet.length && a.alphabet[i] < b.alphabet[j])) {
+				alphabet[n++] = a.alphabet[i++];
+			} else if (i == a.alphabet.length || b.alphabet[j] < a.alphabet[i]) {
+				alphabet[n++] = b.alphabet[j++];
+			} else {
+				alphabet[n++] = a.alphabet[i++];
+				j++;
+			}
+		}
+		result.alphabet = Arrays.copyOf(alphabet, n);
+
+		return result;
+	}
+
+	/**
+	 * @return number of states
+	 */
+	public int getNumStates() {
+		return numStates;
+	}
+
+	/**
+	 * @return the number of the start state
+	 */
+	public int getStartState() {
+		return startState;
+	}
+
+	/**
+	 * Determine whether given state is an accepting state.
+	 * 
+	 * @param s a state number
+	 * @return true if the state is an accepting state, false otherwise
+	 */
+	public boolean isAccepting(int s) {
+		return (accepting[s >>> 6] & (1L << s)) != 0;
+	}
+
+	/**
+	 * @return total number of transitions
+	 */
+	public int getNumTransitions() {
+		return targets.length;
+	}
+
+	/**
+	 * Get the index of the first transition out of given state.
+	 * 
+	 * @param s a state number
+	 * @return index of the first transition out of the state
+	 */
+	public int getTransitionStart(int s) {
+		return offsets[s];
+	}
+
+	/**
+	 * Get the index one past the last transition out of given state.
+	 * 
+	 * @param s a state number
+	 * @return index one past the last transition out of the state
+	 */
+	public int getTransitionEnd(int s) {
+		return offsets[s + 1];
+	}
+
+	/**
+	 * Find the index of the first transition out of given state
+	 * on given symbol.  If there are no such transitions, the result
+	 * is the index where such a transition would be (and will not refer to
+	 * a transition on the symbol.)
+	 * 
+	 * @param s    a state number
+	 * @param sym  a symbol (which may be {@link FiniteAutomaton#EPSILON})
+	 * @return index of the first transition out of the state on the symbol
+	 */
+	public int findTransition(int s, char sym) {
+		int lo = offsets[s], hi = offsets[s + 1];
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (symbols[mid] < sym) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * @param i a transition index
+	 * @return the symbol consumed by the transition
+	 */
+	public char getSymbol(int i) {
+		return symbols[i];
+	}
+
+	/**
+	 * @param i a transition index
+	 * @return the number of the state the transition leads to
+	 */
+	public int getTarget(int i) {
+		return targets[i];
+	}
+
+	/**
+	 * Get the alphabet of symbols used in (non-epsilon) transitions.
+	 * 
+	 * @return the alphabet, in sorted order
+	 */
+	public char[] getAlphabet() {
+		return alphabet.clone();
+	}
+
+	/**
+	 * Get the {@link ClosureIndex} recording the epsilon closure
+	 * of each state.  It is built the first time it is needed.
+	 * 
+	 * @return the ClosureIndex
+	 */
+	public ClosureIndex getClosureIndex() {
+		ClosureIndex index = closureIndex;
+		if (index == null) {
+			index = new ClosureIndex(this);
+			closureIndex = index;
+		}
+		return index;
+	}
+
+	/**
+	 * Get an equivalent CompactAutomaton with no epsilon transitions.
+	 * The result has the same states: a state is accepting if its
+	 * epsilon closure contains an accepting state, and has a transition on a
+	 * symbol to every state directly reachable from its epsilon closure
+	 * on that symbol.  Every state recognizes the same language in the
+	 * result as in this CompactAutomaton.
+	 * 
+	 * @return the CompactAutomaton with no epsilon transitions
+	 */
+	public CompactAutomaton withoutEpsilonTransitions() {
+		CompactAutomaton result = new CompactAutomaton();
+		result.numStates = numStates;
+		result.startState = startState;
+		result.alphabet = alphabet;
+		result.accepting = new long[accepting.length];
+		result.offsets = new int[numStates + 1];
+
+		int[] resultTargets = new int[targets.length];
+		char[] resultSymbols = new char[symbols.length];
+		long[] row = new long[16];
+		int count = 0;
+		for (int s = 0; s < numStates; s++) {
+			StateSet single = new StateSet(numStates);
+			single.add(s);
+			StateSet closure = FiniteAutomatonUtil.closure(this, single);
+
+			int n = 0;
+			for (int t = closure.nextState(0); t >= 0; t = closure.nextState(t + 1)) {
+				if (isAccepting(t)) {
+					result.accepting[s >>> 6] |= 1L << s;
+				}
+				for (int i = offsets[t]; i < offsets[t + 1]; i++) {
+					if (symbols[i] != FiniteAutomaton.EPSILON) {
+						if (n == row.length) {
+							row = Arrays.copyOf(row, 2 * n);
+						}
+						row[n++] = ((long) symbols[i] << 32) | targets[i];
+					}
+				}
+			}
+
+			// sort by symbol and target, and remove duplicates
+			Arrays.sort(row, 0, n);
+			for (int i = 0; i < n; i++) {
+				if (i > 0 && row[i] == row[i - 1]) {
+					continue;
+				}
+				if (count == resultTargets.length) {
+					resultTargets = Arrays.copyOf(resultTargets, 2 * count + 1);
+					resultSymbols = Arrays.copyOf(resultSymbols, 2 * count + 1);
+				}
+				resultSymbols[count] = (char) (row[i] >>> 32);
+				resultTargets[count] = (int) row[i];
+				count++;
+			}
+			result.offsets[s + 1] = count;
+		}
+
+		result.targets = Arrays.copyOf(resultTargets, count);
+		result.symbols = Arrays.copyOf(resultSymbols, count);
+		return result;
+	}
+
+	/**
+	 * Convert back to a FiniteAutomaton.
+	 * The result is a new FiniteAutomaton whose states have the same
+	 * numbers as the states of this CompactAutomaton.
+	 * 
+	 * @return a FiniteAutomaton equivalent to this CompactAutomaton
+	 */
+	public FiniteAutomaton toFiniteAutomaton() {
+		FiniteAutomaton fa = new FiniteAutomaton();
+		State[] dupStates = new State[numStates];
+		for (int s = 0; s < numStates; s++) {
+			dupStates[s] = fa.createState();
+			dupStates[s].setStart(s == startState);
+			dupStates[s].setAccepting(isAccepting(s));
+		}
+		for (int s = 0; s < numStates; s++) {
+			for (int i = offsets[s]; i < offsets[s + 1]; i++) {
+				fa.createTransition(dupStates[s], dupStates[targets[i]], symbols[i]);
+			}
+		}
+		return fa;
+	}
+}
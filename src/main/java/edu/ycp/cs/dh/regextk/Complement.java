@@ -47,6 +47,20 @@ public class Complement extends SingleInputFiniteAutomatonTransformer implements
 		this.alphabet = alphabet;
 	}
 
+	/**
+	 * Get a view recognizing the complement of the language recognized
+	 * by given FiniteAutomaton (relative to its alphabet), without
+	 * building a new automaton.
+	 * 
+	 * @param fa a FiniteAutomaton
+	 * @return the complement view, whose states are sets of states of fa
+	 */
+	public static ImplicitAutomaton<StateSet> view(FiniteAutomaton fa) {
+		// the empty set is never a state of the determinized view,
+		// so it can represent the reject state
+		return new ComplementView<StateSet>(new DeterminizedView(fa), new StateSet());
+	}
+
 	@Override
 	public FiniteAutomaton execute(FiniteAutomatonTransformerMode mode) {
 		FiniteAutomaton fa = getInput();
@@ -0,0 +1,76 @@
+// RegexToolkit - A Java library for regular expressions and finite automata
+// Copyright (C) 2013, David H. Hovemeyer <david.hovemeyer@gmail.com>
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+// 
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+// IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+// CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+// TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+// SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package edu.ycp.cs.dh.regextk;
+
+/**
+ * View of an {@link ImplicitAutomaton} recognizing the complement
+ * of its language: accepting and nonaccepting states are swapped.
+ * Missing transitions lead to a "reject" state which becomes
+ * accepting in the complement, and which must be given explicitly,
+ * since it is not a state of the original automaton.
+ * 
+ * As with {@link Complement}, the complement is relative to the set
+ * of strings over the alphabet of the original automaton.
+ * 
+ * @param <S> the type of states
+ */
+public class ComplementView<S> implements ImplicitAutomaton<S> {
+	private ImplicitAutomaton<S> automaton;
+	private S rejectState;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param automaton   the automaton to complement
+	 * @param rejectState a value to represent the reject state: it must not
+	 *                    be equal to any state of the automaton
+	 */
+	public ComplementView(ImplicitAutomaton<S> automaton, S rejectState) {
+		this.automaton = automaton;
+		this.rejectState = rejectState;
+	}
+
+	@Override
+	public S getStartState() {
+		return automaton.getStartState();
+	}
+
+	@Override
+	public boolean isAccepting(S state) {
+		return state.equals(rejectState) || !automaton.isAccepting(state);
+	}
+
+	@Override
+	public char[] getAlphabet() {
+		return automaton.getAlphabet();
+	}
+
+	@Override
+	public S getSuccessor(S state, char symbol) {
+		if (state.equals(rejectState)) {
+			return rejectState;
+		}
+		S next = automaton.getSuccessor(state, symbol);
+		return next != null ? next : rejectState;
+	}
+}
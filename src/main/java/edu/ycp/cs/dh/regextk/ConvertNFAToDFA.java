@@ -22,20 +22,41 @@
 
 package edu.ycp.cs.dh.regextk;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
-import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Build a deterministic FiniteAutomaton that recognizes the same
  * language as a given nondeterministic FiniteAutomaton.
+ * 
+ * In parallel mode (see {@link #setParallel(boolean)}), the DFA states
+ * are discovered breadth-first, one level at a time, and the successors
+ * of all of the sets of NFA states in a level, on all symbols, are
+ * computed in parallel using a {@link ForkJoinPool}.  DFA states are
+ * still created by a single thread, in a fixed order, so the result
+ * is the same every time.
  */
 public class ConvertNFAToDFA extends SingleInputFiniteAutomatonTransformer implements FiniteAutomatonTransformer {
-	private FiniteAutomaton nfa;
+	// Below this many successor sets, a task computes them itself
+	// rather than splitting the work
+	private static final int PARALLEL_THRESHOLD = 16;
+
+	private CompactAutomaton nfa;
 	private Map<StateSet, State> nfaToDfaStateMap;
 	private FiniteAutomaton dfa;
+	private boolean parallel;
+	private ForkJoinPool pool;
+	private boolean removeEpsilonTransitions;
+	private boolean reduceBySimulation;
 
 	/**
 	 * Constructor.
@@ -44,20 +65,70 @@ public class ConvertNFAToDFA extends SingleInputFiniteAutomatonTransformer imple
 	 *            a deterministic FiniteAutomaton
 	 */
 	public ConvertNFAToDFA() {
-		this.nfaToDfaStateMap = new TreeMap<StateSet, State>();
+		this.nfaToDfaStateMap = new HashMap<StateSet, State>();
 		this.dfa = new FiniteAutomaton();
 	}
 	
+	/**
+	 * Set whether or not to build the DFA in parallel.
+	 * The default is to build the DFA sequentially.
+	 * 
+	 * @param parallel true if the DFA should be built in parallel
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	/**
+	 * Set the {@link ForkJoinPool} used to build the DFA in parallel mode.
+	 * If not set, the common pool is used.
+	 * 
+	 * @param pool the ForkJoinPool
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+	
+	/**
+	 * Set whether or not to remove epsilon transitions from the NFA
+	 * (using {@link RemoveEpsilonTransitions}) before building the DFA,
+	 * so that no epsilon closures need to be computed while building it.
+	 * The default is to use the NFA as-is.
+	 * 
+	 * @param removeEpsilonTransitions true if epsilon transitions should be removed first
+	 */
+	public void setRemoveEpsilonTransitions(boolean removeEpsilonTransitions) {
+		this.removeEpsilonTransitions = removeEpsilonTransitions;
+	}
+	
+	/**
+	 * Set whether or not to reduce the size of the NFA
+	 * (using {@link ReduceBySimulation}, which also removes
+	 * epsilon transitions) before building the DFA.
+	 * The default is to use the NFA as-is.
+	 * 
+	 * @param reduceBySimulation true if the NFA should be reduced first
+	 */
+	public void setReduceBySimulation(boolean reduceBySimulation) {
+		this.reduceBySimulation = reduceBySimulation;
+	}
+	
 	@Override
 	public FiniteAutomaton execute(FiniteAutomatonTransformerMode mode) {
 		// This transformer is always nondestructive
-		nfa = getInput();
-		return convertToDFA();
+		FiniteAutomaton input = getInput();
+		if (reduceBySimulation) {
+			input = FiniteAutomatonUtil.reduceBySimulation(input);
+		} else if (removeEpsilonTransitions) {
+			input = FiniteAutomatonUtil.removeEpsilonTransitions(input);
+		}
+		nfa = new CompactAutomaton(input);
+		return parallel ? convertToDFAInParallel() : convertToDFA();
 	}
 	
 	private FiniteAutomaton convertToDFA() {
-		Set<Character> alphabet = FiniteAutomatonUtil.getAlphabet(nfa);
-		Set<StateSet> added = new TreeSet<StateSet>();
+		char[] alphabet = nfa.getAlphabet();
+		Set<StateSet> added = new HashSet<StateSet>();
 		
 		// create the DFA start state
 		State dfaStart = dfa.createState();
@@ -93,16 +164,135 @@ public class ConvertNFAToDFA extends SingleInputFiniteAutomatonTransformer imple
 			}
 		}
 		
-		// Determine which DFA states are accepting states
+		markAcceptingStates();
+		return dfa;
+	}
+
+	private FiniteAutomaton convertToDFAInParallel() {
+		char[] alphabet = nfa.getAlphabet();
+		int k = alphabet.length;
+		
+		// successor sets found by the worker threads are interned, so that
+		// equal sets found in the same level are represented by one object
+		ConcurrentMap<StateSet, StateSet> interned = new ConcurrentHashMap<StateSet, StateSet>();
+		
+		// create the DFA start state
+		State dfaStart = dfa.createState();
+		dfaStart.setStart(true);
+		StateSet nfaStart = new StateSet();
+		nfaStart.add(nfa.getStartState());
+		nfaStart = FiniteAutomatonUtil.closure(nfa, nfaStart);
+		nfaToDfaStateMap.put(nfaStart, dfaStart);
+		interned.put(nfaStart, nfaStart);
+		
+		ForkJoinPool p = pool != null ? pool : ForkJoinPool.commonPool();
+		List<StateSet> frontier = new ArrayList<StateSet>();
+		frontier.add(nfaStart);
+		while (!frontier.isEmpty()) {
+			// compute all successors of the sets in the frontier
+			StateSet[] frontierSets = frontier.toArray(new StateSet[frontier.size()]);
+			StateSet[] successors = new StateSet[frontierSets.length * k];
+			p.invoke(new SuccessorTask(nfa, alphabet, frontierSets, successors, interned, 0, successors.length));
+			
+			// create DFA states and transitions, in order
+			List<StateSet> nextFrontier = new ArrayList<StateSet>();
+			for (int i = 0; i < frontierSets.length; i++) {
+				State dfaState = nfaToDfaStateMap.get(frontierSets[i]);
+				for (int a = 0; a < k; a++) {
+					StateSet reachableNfaStates = successors[i * k + a];
+					if (reachableNfaStates == null) {
+						continue;
+					}
+					State targetDfaState = nfaToDfaStateMap.get(reachableNfaStates);
+					if (targetDfaState == null) {
+						targetDfaState = dfa.createState();
+						nfaToDfaStateMap.put(reachableNfaStates, targetDfaState);
+						nextFrontier.add(reachableNfaStates);
+					}
+					dfa.createTransition(dfaState, targetDfaState, alphabet[a]);
+				}
+			}
+			frontier = nextFrontier;
+		}
+		
+		markAcceptingStates();
+		return dfa;
+	}
+
+	// Computes successors[j], for j from start to end, as the set of NFA
+	// states reached from frontier[j / k] on alphabet[j % k], or null if
+	// the set is empty.
+	private static class SuccessorTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		
+		private final CompactAutomaton nfa;
+		private final char[] alphabet;
+		private final StateSet[] frontier;
+		private final StateSet[] successors;
+		private final ConcurrentMap<StateSet, StateSet> interned;
+		private final int start, end;
+		
+		public SuccessorTask(CompactAutomaton nfa, char[] alphabet, StateSet[] frontier, StateSet[] successors,
+				ConcurrentMap<StateSet, StateSet> interned, int start, int end) {
+			this.nfa = nfa;
+			this.alphabet = alphabet;
+			this.frontier = frontier;
+			this.successors = successors;
+			this.interned = interned;
+			this.start = start;
+			this.end = end;
+		}
+		
+		@Override
+		protected void compute() {
+			if (end - start > PARALLEL_THRESHOLD) {
+				int mid = (start + end) >>> 1;
+				invokeAll(new SuccessorTask(nfa, alphabet, frontier, successors, interned, start, mid),
+						new SuccessorTask(nfa, alphabet, frontier, successors, interned, mid, end));
+				return;
+			}
+			
+			int k = alphabet.length;
+			for (int j = start; j < end; j++) {
+				StateSet reachable = FiniteAutomatonUtil.closure(nfa, FiniteAutomatonUtil.followAll(nfa, frontier[j / k], alphabet[j % k]));
+				if (!reachable.isEmpty()) {
+					StateSet existing = interned.putIfAbsent(reachable, reachable);
+					successors[j] = existing != null ? existing : reachable;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the set of NFA states represented by each state of the DFA
+	 * built by {@link #execute(FiniteAutomatonTransformerMode)}.
+	 * The NFA states are identified by their state numbers: if epsilon
+	 * transitions were removed or the NFA was reduced before building
+	 * the DFA, these are the states of the resulting automaton, not of
+	 * the input automaton.
+	 * 
+	 * @return array of the sets of NFA states, indexed by DFA state number
+	 */
+	public StateSet[] getNFAStateSets() {
+		if (nfa == null) {
+			throw new IllegalStateException("The DFA has not been built");
+		}
+		StateSet[] result = new StateSet[dfa.getNumStates()];
+		for (Map.Entry<StateSet, State> e : nfaToDfaStateMap.entrySet()) {
+			result[e.getValue().getNumber()] = e.getKey();
+		}
+		return result;
+	}
+
+	// Determine which DFA states are accepting states
+	private void markAcceptingStates() {
 		for (Map.Entry<StateSet, State> e : nfaToDfaStateMap.entrySet()) {
 			StateSet nfaStates = e.getKey();
 			State dfaState = e.getValue();
-			if (FiniteAutomatonUtil.containsAcceptingState(nfaStates)) {
+			if (FiniteAutomatonUtil.containsAcceptingState(nfa, nfaStates)) {
 				dfaState.setAccepting(true);
 			}
 		}
-		
-		return dfa;
 	}
 
 	private State getEquivalentDFAState(StateSet nfaStates) {
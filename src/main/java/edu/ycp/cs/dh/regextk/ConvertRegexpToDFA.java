@@ -0,0 +1,406 @@
+// RegexToolkit - A Java library for regular expressions and finite automata
+// Copyright (C) 2013, David H. Hovemeyer <david.hovemeyer@gmail.com>
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+// 
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+// IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+// CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+// TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+// SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package edu.ycp.cs.dh.regextk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Convert a regular expression directly to a deterministic finite
+ * automaton using Brzozowski derivatives, without building an NFA.
+ * 
+ * The derivative of a regexp R with respect to a symbol a generates
+ * the strings w such that R generates aw.  Each DFA state is a regexp,
+ * with the original regexp as the start state: the transition on a
+ * leads to the derivative with respect to a, and the state is accepting
+ * if the regexp generates the empty string.  Derivatives are simplified
+ * and put into a normal form (alternations are flattened, sorted, and
+ * duplicates removed), which guarantees that there are finitely many
+ * of them, and usually makes the DFA close to minimal.  Each distinct
+ * normalized regexp is stored only once (hash-consed), so that
+ * regexps can be compared and hashed cheaply.  Concatenations are
+ * represented as a first regexp and the rest of the concatenation,
+ * so that derivatives share the rest instead of copying it, and the
+ * conversion is not recursive, so deeply nested regexps can be converted.
+ * 
+ * The result has no dead state, so it may be missing transitions
+ * on some symbols.
+ */
+public class ConvertRegexpToDFA {
+	private Regexp regexp;
+
+	// hash-consing table: each distinct normalized regexp has a
+	// unique representative, numbered in order of creation
+	private Map<Regexp, Regexp> table;
+	private Map<Regexp, Integer> ids;
+	private Map<Regexp, Regexp[]> derivatives;
+	private char[] alphabet;
+
+	private final Comparator<Regexp> byId = new Comparator<Regexp>() {
+		@Override
+		public int compare(Regexp o1, Regexp o2) {
+			return ids.get(o1).compareTo(ids.get(o2));
+		}
+	};
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param regexp a string containing a regular expression
+	 */
+	public ConvertRegexpToDFA(String regexp) {
+		this(new ParseRegexp(regexp).parse());
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param regexp a parsed regular expression
+	 */
+	public ConvertRegexpToDFA(Regexp regexp) {
+		this.regexp = regexp;
+	}
+
+	/**
+	 * Convert the regular expression (passed to the constructor)
+	 * into a DFA.
+	 * 
+	 * @return the DFA which recognizes the language specified by the regular expression
+	 */
+	public FiniteAutomaton convertToDFA() {
+		table = new HashMap<Regexp, Regexp>();
+		ids = new HashMap<Regexp, Integer>();
+		derivatives = new HashMap<Regexp, Regexp[]>();
+
+		TreeSet<Character> symbols = new TreeSet<Character>();
+		findSymbols(regexp, symbols);
+		alphabet = new char[symbols.size()];
+		int n = 0;
+		for (char c : symbols) {
+			alphabet[n++] = c;
+		}
+
+		Regexp start = normalize(regexp);
+
+		FiniteAutomaton result = new FiniteAutomaton();
+		Map<Regexp, State> regexpToState = new HashMap<Regexp, State>();
+		List<Regexp> workList = new ArrayList<Regexp>();
+		State startState = result.createState();
+		startState.setStart(true);
+		regexpToState.put(start, startState);
+		workList.add(start);
+
+		for (int head = 0; head < workList.size(); head++) {
+			Regexp r = workList.get(head);
+			State from = regexpToState.get(r);
+			from.setAccepting(r.isNullable());
+			for (char c : alphabet) {
+				Regexp d = derivative(r, c);
+				if (d.getKind() == Regexp.Kind.EMPTY_SET) {
+					continue;
+				}
+				State to = regexpToState.get(d);
+				if (to == null) {
+					to = result.createState();
+					regexpToState.put(d, to);
+					workList.add(d);
+				}
+				result.createTransition(from, to, c);
+			}
+		}
+
+		return result;
+	}
+
+	private static void findSymbols(Regexp root, TreeSet<Character> symbols) {
+		List<Regexp> stack = new ArrayList<Regexp>();
+		stack.add(root);
+		while (!stack.isEmpty()) {
+			Regexp r = stack.remove(stack.size() - 1);
+			if (r.getKind() == Regexp.Kind.SYMBOL) {
+				symbols.add(r.getSymbol());
+			}
+			stack.addAll(r.getChildren());
+		}
+	}
+
+	// Get the unique representative of a regexp whose children
+	// are already unique representatives.
+	private Regexp intern(Regexp r) {
+		Regexp existing = table.get(r);
+		if (existing != null) {
+			return existing;
+		}
+		table.put(r, r);
+		ids.put(r, ids.size());
+		return r;
+	}
+
+	// Convert an arbitrary regexp to a normalized unique representative.
+	private Regexp normalize(Regexp root) {
+		// visit the subexpressions in postorder, using an explicit stack:
+		// when a subexpression is visited, its normalized children
+		// are on top of the result stack
+		Map<Regexp, Regexp> normalized = new IdentityHashMap<Regexp, Regexp>();
+		List<Regexp> nodes = new ArrayList<Regexp>();
+		List<Regexp> results = new ArrayList<Regexp>();
+		int[] nextChild = new int[16];
+		nodes.add(root);
+		while (!nodes.isEmpty()) {
+			int top = nodes.size() - 1;
+			Regexp r = nodes.get(top);
+			List<Regexp> children = r.getChildren();
+			if (nextChild[top] < children.size()) {
+				Regexp child = children.get(nextChild[top]++);
+				Regexp known = normalized.get(child);
+				if (known != null) {
+					results.add(known);
+					continue;
+				}
+				nodes.add(child);
+				if (nodes.size() > nextChild.length) {
+					nextChild = Arrays.copyOf(nextChild, 2 * nextChild.length);
+				}
+				nextChild[top + 1] = 0;
+				continue;
+			}
+			nodes.remove(top);
+			List<Regexp> parts = results.subList(results.size() - children.size(), results.size());
+			Regexp n = normalize(r, parts);
+			parts.clear();
+			normalized.put(r, n);
+			results.add(n);
+		}
+		return results.get(0);
+	}
+
+	// Normalize a regexp, given its normalized children.
+	private Regexp normalize(Regexp r, List<Regexp> children) {
+		switch (r.getKind()) {
+		case EMPTY_SET:
+		case EPSILON:
+		case SYMBOL:
+			return intern(r);
+		case CONCAT:
+			Regexp result = children.get(children.size() - 1);
+			for (int i = children.size() - 2; i >= 0; i--) {
+				result = concat(children.get(i), result);
+			}
+			return result;
+		case ALTERNATION:
+			return alternation(new ArrayList<Regexp>(children));
+		case STAR:
+			return star(children.get(0));
+		case PLUS:
+			// r+ = r r*
+			Regexp child = children.get(0);
+			return concat(child, star(child));
+		case OPTIONAL:
+			return alternation(intern(Regexp.epsilon()), children.get(0));
+		default:
+			throw new IllegalStateException("Unknown regexp kind " + r.getKind());
+		}
+	}
+
+	// The smart constructors below take normalized regexps and
+	// return a normalized regexp.  A normalized concatenation has
+	// two children: a regexp which is not a concatenation, and the
+	// rest of the concatenation, so the rest is shared by all
+	// of the regexps it is a part of, rather than copied.
+
+	private Regexp concat(Regexp first, Regexp second) {
+		if (first.getKind() == Regexp.Kind.EMPTY_SET || second.getKind() == Regexp.Kind.EMPTY_SET) {
+			return intern(Regexp.emptySet());
+		}
+		if (first.getKind() == Regexp.Kind.EPSILON) {
+			return second;
+		}
+		if (second.getKind() == Regexp.Kind.EPSILON) {
+			return first;
+		}
+
+		// (r1 (r2 ... rn)) second = r1 (r2 ... (rn second))
+		List<Regexp> parts = new ArrayList<Regexp>();
+		Regexp r = first;
+		while (r.getKind() == Regexp.Kind.CONCAT) {
+			parts.add(r.getChildren().get(0));
+			r = r.getChildren().get(1);
+		}
+		parts.add(r);
+		Regexp result = second;
+		for (int i = parts.size() - 1; i >= 0; i--) {
+			result = intern(Regexp.concat(parts.get(i), result));
+		}
+		return result;
+	}
+
+	private Regexp alternation(Regexp first, Regexp second) {
+		List<Regexp> alternatives = new ArrayList<Regexp>();
+		alternatives.add(first);
+		alternatives.add(second);
+		return alternation(alternatives);
+	}
+
+	private Regexp alternation(List<Regexp> alternatives) {
+		// sort by unique id and remove duplicates: this makes
+		// alternation associative, commutative, and idempotent
+		TreeSet<Regexp> set = new TreeSet<Regexp>(byId);
+		for (Regexp r : alternatives) {
+			if (r.getKind() == Regexp.Kind.ALTERNATION) {
+				set.addAll(r.getChildren());
+			} else if (r.getKind() != Regexp.Kind.EMPTY_SET) {
+				set.add(r);
+			}
+		}
+		if (set.isEmpty()) {
+			return intern(Regexp.emptySet());
+		}
+		return intern(Regexp.alternation(new ArrayList<Regexp>(set)));
+	}
+
+	private Regexp star(Regexp r) {
+		switch (r.getKind()) {
+		case EMPTY_SET:
+		case EPSILON:
+			return intern(Regexp.epsilon());
+		case STAR:
+			return r;
+		default:
+			return intern(Regexp.star(r));
+		}
+	}
+
+	// Compute the (normalized) derivative of a normalized regexp.
+	private Regexp derivative(Regexp root, char c) {
+		int a = indexOf(c);
+
+		// compute the derivatives of the subexpressions that are
+		// needed, and not known yet, in postorder, using an explicit stack
+		List<Regexp> stack = new ArrayList<Regexp>();
+		stack.add(root);
+		while (!stack.isEmpty()) {
+			int top = stack.size() - 1;
+			Regexp r = stack.get(top);
+			if (getDerivative(r, a) != null) {
+				stack.remove(top);
+				continue;
+			}
+			switch (r.getKind()) {
+			case CONCAT:
+				Regexp head = r.getChildren().get(0);
+				pushIfUnknown(stack, head, a);
+				if (head.isNullable()) {
+					pushIfUnknown(stack, r.getChildren().get(1), a);
+				}
+				break;
+			case ALTERNATION:
+			case STAR:
+				for (Regexp child : r.getChildren()) {
+					pushIfUnknown(stack, child, a);
+				}
+				break;
+			default:
+				break;
+			}
+			if (stack.size() - 1 == top) {
+				stack.remove(top);
+				setDerivative(r, a, computeDerivative(r, a, c));
+			}
+		}
+		return getDerivative(root, a);
+	}
+
+	private void pushIfUnknown(List<Regexp> stack, Regexp r, int a) {
+		if (getDerivative(r, a) == null) {
+			stack.add(r);
+		}
+	}
+
+	private Regexp getDerivative(Regexp r, int a) {
+		Regexp[] known = derivatives.get(r);
+		return known != null ? known[a] : null;
+	}
+
+	private void setDerivative(Regexp r, int a, Regexp d) {
+		Regexp[] known = derivatives.get(r);
+		if (known == null) {
+			known = new Regexp[alphabet.length];
+			derivatives.put(r, known);
+		}
+		known[a] = d;
+	}
+
+	// Compute the derivative of a normalized regexp, given
+	// the derivatives of the subexpressions it depends on.
+	private Regexp computeDerivative(Regexp r, int a, char c) {
+		switch (r.getKind()) {
+		case EMPTY_SET:
+		case EPSILON:
+			return intern(Regexp.emptySet());
+		case SYMBOL:
+			return intern(r.getSymbol() == c ? Regexp.epsilon() : Regexp.emptySet());
+		case CONCAT:
+			// d(r1 r2) = d(r1) r2, plus d(r2) if r1 is nullable
+			Regexp head = r.getChildren().get(0);
+			Regexp rest = r.getChildren().get(1);
+			Regexp result = concat(getDerivative(head, a), rest);
+			if (head.isNullable()) {
+				result = alternation(result, getDerivative(rest, a));
+			}
+			return result;
+		case ALTERNATION:
+			List<Regexp> alternatives = new ArrayList<Regexp>();
+			for (Regexp child : r.getChildren()) {
+				alternatives.add(getDerivative(child, a));
+			}
+			return alternation(alternatives);
+		case STAR:
+			// d(r*) = d(r) r*
+			return concat(getDerivative(r.getChild(), a), r);
+		default:
+			// PLUS and OPTIONAL do not occur in normalized regexps
+			throw new IllegalStateException("Unexpected regexp kind " + r.getKind());
+		}
+	}
+
+	private int indexOf(char c) {
+		int lo = 0, hi = alphabet.length - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if (alphabet[mid] < c) {
+				lo = mid + 1;
+			} else if (alphabet[mid] > c) {
+				hi = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		throw new IllegalArgumentException("Symbol " + c + " is not in the alphabet");
+	}
+}
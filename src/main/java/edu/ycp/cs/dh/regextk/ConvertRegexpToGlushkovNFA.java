@@ -0,0 +1,283 @@
+// RegexToolkit - A Java library for regular expressions and finite automata
+// Copyright (C) 2013, David H. Hovemeyer <david.hovemeyer@gmail.com>
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+// 
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+// IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+// CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+// TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+// SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package edu.ycp.cs.dh.regextk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Convert a regular expression to its Glushkov (position) automaton:
+ * an NFA with no epsilon transitions, having one state for each
+ * occurrence of a symbol in the regexp, plus a start state.
+ * 
+ * The state for a symbol occurrence (position) is reached by consuming
+ * that occurrence, so every transition into it is on that symbol.
+ * The construction computes, for each subexpression, whether it
+ * generates the empty string, and the sets of positions that can
+ * begin and end the strings it generates; for each position, it computes
+ * the set of positions that can follow it.
+ */
+public class ConvertRegexpToGlushkovNFA {
+	private Regexp regexp;
+
+	// symbol at each position (positions are numbered from 1)
+	private char[] symbols;
+	private int numPositions;
+	private Positions[] follow;
+
+	// a set of positions (in no particular order), or a list of
+	// positions which may contain duplicates (for follow sets)
+	private static class Positions {
+		int[] items = new int[4];
+		int size;
+
+		void add(int p) {
+			if (size == items.length) {
+				items = Arrays.copyOf(items, 2 * size);
+			}
+			items[size++] = p;
+		}
+
+		void addAll(Positions other) {
+			if (size + other.size > items.length) {
+				items = Arrays.copyOf(items, Math.max(2 * items.length, size + other.size));
+			}
+			System.arraycopy(other.items, 0, items, size, other.size);
+			size += other.size;
+		}
+	}
+
+	// nullable/first/last information about a subexpression
+	private static class Info {
+		boolean nullable;
+		Positions first;
+		Positions last;
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param regexp a string containing a regular expression
+	 */
+	public ConvertRegexpToGlushkovNFA(String regexp) {
+		this(new ParseRegexp(regexp).parse());
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param regexp a parsed regular expression
+	 */
+	public ConvertRegexpToGlushkovNFA(Regexp regexp) {
+		this.regexp = regexp;
+	}
+
+	/**
+	 * Convert the regular expression (passed to the constructor)
+	 * into an NFA.  The conversion is not recursive: the subexpressions
+	 * are visited using an explicit stack, so deeply nested regexps
+	 * can be converted.
+	 * 
+	 * @return the NFA which recognizes the language specified by the regular expression
+	 */
+	public FiniteAutomaton convertToNFA() {
+		numPositions = countPositions(regexp);
+		symbols = new char[numPositions + 1];
+		follow = new Positions[numPositions + 1];
+
+		Info info = analyze(regexp);
+
+		// state 0 is the start state, and state p is position p
+		FiniteAutomaton result = new FiniteAutomaton();
+		State[] states = new State[numPositions + 1];
+		for (int p = 0; p <= numPositions; p++) {
+			states[p] = result.createState();
+		}
+		states[0].setStart(true);
+		states[0].setAccepting(info.nullable);
+		for (int i = 0; i < info.last.size; i++) {
+			states[info.last.items[i]].setAccepting(true);
+		}
+		int[] added = new int[numPositions + 1];
+		Arrays.fill(added, -1);
+		addTransitions(result, states, 0, info.first, added);
+		for (int p = 1; p <= numPositions; p++) {
+			addTransitions(result, states, p, follow[p], added);
+		}
+
+		return result;
+	}
+
+	// Add the transitions from position p to the given targets, in order,
+	// skipping duplicates (added[q] == p if the transition to q was added).
+	private void addTransitions(FiniteAutomaton result, State[] states, int p, Positions targets, int[] added) {
+		if (targets == null) {
+			return;
+		}
+		int[] sorted = Arrays.copyOf(targets.items, targets.size);
+		Arrays.sort(sorted);
+		for (int q : sorted) {
+			if (added[q] != p) {
+				added[q] = p;
+				result.createTransition(states[p], states[q], symbols[q]);
+			}
+		}
+	}
+
+	private static int countPositions(Regexp root) {
+		int count = 0;
+		List<Regexp> stack = new ArrayList<Regexp>();
+		stack.add(root);
+		while (!stack.isEmpty()) {
+			Regexp r = stack.remove(stack.size() - 1);
+			if (r.getKind() == Regexp.Kind.SYMBOL) {
+				count++;
+			}
+			stack.addAll(r.getChildren());
+		}
+		return count;
+	}
+
+	private Info analyze(Regexp root) {
+		// visit the subexpressions in postorder, using an explicit stack:
+		// when a subexpression is visited, the information about its
+		// children is on top of the info stack, and the positions of its
+		// symbols are numbered from left to right
+		List<Regexp> nodes = new ArrayList<Regexp>();
+		List<Info> infos = new ArrayList<Info>();
+		int[] nextChild = new int[16];
+		int nextPosition = 1;
+		nodes.add(root);
+		while (!nodes.isEmpty()) {
+			int top = nodes.size() - 1;
+			Regexp r = nodes.get(top);
+			List<Regexp> children = r.getChildren();
+			if (nextChild[top] < children.size()) {
+				nodes.add(children.get(nextChild[top]++));
+				if (nodes.size() > nextChild.length) {
+					nextChild = Arrays.copyOf(nextChild, 2 * nextChild.length);
+				}
+				nextChild[top + 1] = 0;
+				continue;
+			}
+			nodes.remove(top);
+			if (r.getKind() == Regexp.Kind.SYMBOL) {
+				symbols[nextPosition] = r.getSymbol();
+				nextPosition++;
+			}
+			List<Info> childInfos = infos.subList(infos.size() - children.size(), infos.size());
+			Info info = analyze(r, childInfos, nextPosition - 1);
+			childInfos.clear();
+			infos.add(info);
+		}
+		return infos.get(0);
+	}
+
+	// Compute the information about a subexpression from the
+	// information about its children.  (The first and last sets
+	// of the children are reused, so they are no longer valid.)
+	private Info analyze(Regexp r, List<Info> children, int position) {
+		Info info;
+		switch (r.getKind()) {
+		case EMPTY_SET:
+		case EPSILON:
+			info = new Info();
+			info.nullable = r.getKind() == Regexp.Kind.EPSILON;
+			info.first = new Positions();
+			info.last = new Positions();
+			return info;
+
+		case SYMBOL:
+			info = new Info();
+			info.nullable = false;
+			info.first = new Positions();
+			info.first.add(position);
+			info.last = new Positions();
+			info.last.add(position);
+			return info;
+
+		case CONCAT:
+			info = children.get(0);
+			for (int i = 1; i < children.size(); i++) {
+				Info next = children.get(i);
+				addFollow(info.last, next.first);
+				if (info.nullable) {
+					info.first = union(info.first, next.first);
+				}
+				info.last = next.nullable ? union(next.last, info.last) : next.last;
+				info.nullable = info.nullable && next.nullable;
+			}
+			return info;
+
+		case ALTERNATION:
+			info = children.get(0);
+			for (int i = 1; i < children.size(); i++) {
+				Info next = children.get(i);
+				info.first = union(info.first, next.first);
+				info.last = union(info.last, next.last);
+				info.nullable = info.nullable || next.nullable;
+			}
+			return info;
+
+		case STAR:
+		case PLUS:
+		case OPTIONAL:
+			info = children.get(0);
+			if (r.getKind() != Regexp.Kind.OPTIONAL) {
+				addFollow(info.last, info.first);
+			}
+			if (r.getKind() != Regexp.Kind.PLUS) {
+				info.nullable = true;
+			}
+			return info;
+
+		default:
+			throw new IllegalStateException("Unknown regexp kind " + r.getKind());
+		}
+	}
+
+	// Union of two disjoint sets of positions: the smaller set is
+	// added to the larger one, which is returned (so each position
+	// is copied a logarithmic number of times.)
+	private static Positions union(Positions a, Positions b) {
+		if (a.size < b.size) {
+			Positions tmp = a;
+			a = b;
+			b = tmp;
+		}
+		a.addAll(b);
+		return a;
+	}
+
+	// every position in targets can follow every position in sources
+	private void addFollow(Positions sources, Positions targets) {
+		for (int i = 0; i < sources.size; i++) {
+			int p = sources.items[i];
+			if (follow[p] == null) {
+				follow[p] = new Positions();
+			}
+			follow[p].addAll(targets);
+		}
+	}
+}
@@ -22,27 +22,36 @@
 
 package edu.ycp.cs.dh.regextk;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Parse a regular expression and convert it to a nondeterministic finite automaton (NFA).
+ * The regexp is parsed using {@link ParseRegexp}, and the NFA is built using
+ * Thompson's construction.  Neither step is recursive, and all of the states are
+ * created directly in the result automaton (rather than building an automaton for
+ * each subexpression and combining them), so the conversion takes time linear
+ * in the length of the regexp, even for very long or deeply nested regexps.
+ * 
+ * Subexpressions which occur more than once are compiled only once:
+ * the states and transitions of the first copy are recorded, and
+ * later occurrences are spliced into the result from the record
+ * (without visiting the subexpression again).  Optionally, the recorded
+ * copy can be reduced (see {@link #setReduceRepeatedSubexpressions(boolean)}),
+ * so that each later occurrence adds fewer states and transitions.
  */
 public class ConvertRegexpToNFA {
 	/*
-	Grammar for simple regexps:
-
-	s = symbol (character)
-	ε = epsilon
-	note that |, (, ), *, and + are all terminal symbols
-	   (e.g., in the grammar, we're using "|" to mean the literal
-	   "|" symbol, not as a shorthand for multiple productions
-	   on the same nonterminal)
-
-	Productions:
+	Grammar for simple regexps (see ParseRegexp):
 
 	R := E
 	R := E|R        disjunction
 	E := T
 	E := TE         concatenation
-	E := T
 	T := F
 	T := F*         repetition (0 or more)
 	T := F+         repetition (1 or more)
@@ -54,9 +63,40 @@ public class ConvertRegexpToNFA {
 	 */
 
 	private static final boolean CHECK_NFA = true;
+
+	// A compiled subexpression, with states numbered from 0.
+	private static class Fragment {
+		private final int numStates;
+		private final int start;
+		private final int accepting;
+		private final int[] from;
+		private final int[] to;
+		private final char[] symbols;
+
+		public Fragment(int numStates, int start, int accepting, int numTransitions) {
+			this.numStates = numStates;
+			this.start = start;
+			this.accepting = accepting;
+			this.from = new int[numTransitions];
+			this.to = new int[numTransitions];
+			this.symbols = new char[numTransitions];
+		}
+	}
+
 	private String regexp;
-	private int pos;
-	private int nextCh;
+	private Regexp parsed;
+	private boolean reduceRepeatedSubexpressions;
+
+	// number of occurrences of each subexpression, and the compiled
+	// fragments of the subexpressions which occur more than once
+	private Map<Regexp, Integer> occurrences;
+	private Map<Regexp, Fragment> memo;
+
+	// the NFA being built: each completed subexpression is a fragment
+	// with a single start state and a single accepting state
+	private FiniteAutomaton result;
+	private List<State> fragmentStart;
+	private List<State> fragmentAccept;
 
 	/**
 	 * Constructor.
@@ -65,8 +105,29 @@ public class ConvertRegexpToNFA {
 	 */
 	public ConvertRegexpToNFA(String regexp) {
 		this.regexp = regexp;
-		this.pos = 0;
-		this.nextCh = -1;
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param regexp a parsed regular expression
+	 */
+	public ConvertRegexpToNFA(Regexp regexp) {
+		this.parsed = regexp;
+	}
+
+	/**
+	 * Set whether repeated subexpressions should be reduced: if true, the
+	 * fragment spliced in for the second and later occurrences of a
+	 * subexpression has no epsilon transitions, and is reduced using
+	 * {@link ReduceBySimulation}, if that makes it smaller.  The result
+	 * is then not (quite) the automaton produced by Thompson's construction.
+	 * The default is false.
+	 * 
+	 * @param reduceRepeatedSubexpressions true if repeated subexpressions should be reduced
+	 */
+	public void setReduceRepeatedSubexpressions(boolean reduceRepeatedSubexpressions) {
+		this.reduceRepeatedSubexpressions = reduceRepeatedSubexpressions;
 	}
 
 	/**
@@ -76,216 +137,260 @@ public class ConvertRegexpToNFA {
 	 * @return the NFA which recognizes the language specified by the regular expression
 	 */
 	public FiniteAutomaton convertToNFA() {
-		FiniteAutomaton fa = parseR();
-		
-		// Make sure that the entire regular expression was parsed.
-		// This avoids situations, e.g., such as "a)*" being treated
-		// as "a".
-		if (!regexp.substring(pos).trim().isEmpty()) {
-			throw new IllegalArgumentException("Regular expression had trailing symbols (mismatched parens?)");
+		Regexp root = parsed != null ? parsed : new ParseRegexp(regexp).parse();
+
+		result = new FiniteAutomaton();
+		fragmentStart = new ArrayList<State>();
+		fragmentAccept = new ArrayList<State>();
+		countOccurrences(root);
+		memo = new HashMap<Regexp, Fragment>();
+
+		// visit the subexpressions in postorder, using an explicit stack:
+		// when a subexpression is visited, the fragments for its children
+		// are on top of the fragment stack
+		List<Regexp> nodes = new ArrayList<Regexp>();
+		int[] nextChild = new int[16];
+		int[] firstState = new int[16];
+		int[] firstTransition = new int[16];
+		nodes.add(root);
+		while (!nodes.isEmpty()) {
+			int top = nodes.size() - 1;
+			Regexp r = nodes.get(top);
+			List<Regexp> children = r.getChildren();
+			if (nextChild[top] < children.size()) {
+				Regexp child = children.get(nextChild[top]++);
+				Fragment known = memo.get(child);
+				if (known != null) {
+					splice(known);
+					continue;
+				}
+				nodes.add(child);
+				if (nodes.size() > nextChild.length) {
+					nextChild = Arrays.copyOf(nextChild, 2 * nextChild.length);
+					firstState = Arrays.copyOf(firstState, 2 * firstState.length);
+					firstTransition = Arrays.copyOf(firstTransition, 2 * firstTransition.length);
+				}
+				nextChild[top + 1] = 0;
+				firstState[top + 1] = result.getNumStates();
+				firstTransition[top + 1] = result.getAllTransitions().size();
+				continue;
+			}
+			nodes.remove(top);
+			build(r);
+			if (!children.isEmpty() && occurrences.get(r) > 1) {
+				memo.put(r, record(firstState[top], firstTransition[top]));
+			}
 		}
-		
-		return fa;
-	}
 
-	// Note: all intermediate NFAs are guaranteed to have a single start state
-	// and a single accepting state.
+		fragmentStart.get(0).setStart(true);
+		fragmentAccept.get(0).setAccepting(true);
 
-	private FiniteAutomaton parseR() {
-		// R := E
-		// R := E|R        disjunction
-
-		FiniteAutomaton e = parseE();
-
-		int c = peek();
-		if (c >= 0 && c == '|') {
-			// disjunction
-
-			// consume the "|"
-			expect('|');
-
-			// convert the right-hand side to an NFA
-			FiniteAutomaton r = parseR();
-
-			// build a big NFA to represent the disjunction
-			Union union = new Union();
-			union.add(e);
-			union.add(r);
-			FiniteAutomaton result = union.execute(FiniteAutomatonTransformerMode.DESTRUCTIVE); 
+		FiniteAutomaton fa = check(result);
+		result = null;
+		fragmentStart = null;
+		fragmentAccept = null;
+		occurrences = null;
+		memo = null;
+		return fa;
+	}
 
-			// done
-			return check(result);
+	// Count the occurrences of each subexpression: the subexpressions
+	// of a repeated subexpression are only counted once, since its
+	// later occurrences will not be visited.
+	private void countOccurrences(Regexp root) {
+		occurrences = new HashMap<Regexp, Integer>();
+		List<Regexp> stack = new ArrayList<Regexp>();
+		stack.add(root);
+		while (!stack.isEmpty()) {
+			Regexp r = stack.remove(stack.size() - 1);
+			Integer n = occurrences.get(r);
+			occurrences.put(r, n == null ? 1 : n + 1);
+			if (n == null) {
+				stack.addAll(r.getChildren());
+			}
 		}
-
-		return e;
 	}
 
-	private FiniteAutomaton parseE() {
-		// E := T
-		// E := TE         concatenation
-
-		FiniteAutomaton t = parseT();
-
-		int c = peek();
-
-		if (c >= 0 && c != ')' && c != '|') {
-			// concatenation
-
-			FiniteAutomaton e = parseE();
-
-			// create result automaton
-			FiniteAutomaton result = new FiniteAutomaton();
-			result.addAll(t);
-			result.addAll(e);
-
-			// create ε-transition connecting e's accepting state to r's start state
-			result.createTransition(t.getUniqueAcceptingState(), e.getStartState(), FiniteAutomaton.EPSILON);
-			t.getUniqueAcceptingState().setAccepting(false);
-			e.getStartState().setStart(false);
-
-			// done
-			return check(result);
+	// Record the fragment on top of the fragment stack, which consists
+	// of the states and transitions created since given state and transition.
+	private Fragment record(int firstState, int firstTransition) {
+		List<Transition> transitions = result.getAllTransitions();
+		Fragment fragment = new Fragment(
+				result.getNumStates() - firstState,
+				fragmentStart.get(fragmentStart.size() - 1).getNumber() - firstState,
+				fragmentAccept.get(fragmentAccept.size() - 1).getNumber() - firstState,
+				transitions.size() - firstTransition);
+		for (int i = 0; i < fragment.from.length; i++) {
+			Transition t = transitions.get(firstTransition + i);
+			fragment.from[i] = t.getFromState().getNumber() - firstState;
+			fragment.to[i] = t.getToState().getNumber() - firstState;
+			fragment.symbols[i] = t.getSymbol();
 		}
-
-		return t;
+		if (reduceRepeatedSubexpressions) {
+			Fragment reduced = reduce(fragment);
+			if (reduced.numStates + reduced.from.length < fragment.numStates + fragment.from.length) {
+				return reduced;
+			}
+		}
+		return fragment;
 	}
 
-	private FiniteAutomaton parseT() {
-		// T := F
-		// T := F*         repetition (0 or more)
-		// T := F+         repetition (1 or more)
-		// T := F?         optional (0 or 1)
-		
-		FiniteAutomaton f = parseF();
-		
-		int c = peek();
-		if (c >= 0 && (c == '*' || c == '+')) {
-			// repetition
-			expect((char) c); // consume the * or +
-
-			// Create result NFA with new start and accepting states
-			FiniteAutomaton result = new FiniteAutomaton();
-			State start = result.createState();
-			start.setStart(true);
-			State accepting = result.createState();
-			accepting.setAccepting(true);
-
-			// add ε-transitions from
-			//   - start to accepting (only for '*', not for '+') and,
-			//   - accepting to start state (both '*' and '+')
-			// This allows 0 or more repetitions for '*', and 1 or more
-			// repetitions for '+'.
-			
-			if (c == '*') {
-				result.createTransition(start, accepting, FiniteAutomaton.EPSILON);
+	// Reduce a fragment using ReduceBySimulation, adding a new accepting
+	// state if the reduced automaton does not have exactly one.
+	private static Fragment reduce(Fragment fragment) {
+		FiniteAutomaton fa = new FiniteAutomaton();
+		for (int s = 0; s < fragment.numStates; s++) {
+			fa.createState();
+		}
+		fa.getState(fragment.start).setStart(true);
+		fa.getState(fragment.accepting).setAccepting(true);
+		for (int i = 0; i < fragment.from.length; i++) {
+			fa.createTransition(fa.getState(fragment.from[i]), fa.getState(fragment.to[i]), fragment.symbols[i]);
+		}
+
+		FiniteAutomaton reduced = FiniteAutomatonUtil.reduceBySimulation(fa);
+		List<State> accepting = reduced.getAcceptingStates();
+		if (accepting.size() != 1) {
+			State newAccept = reduced.createState();
+			for (State s : accepting) {
+				reduced.createTransition(s, newAccept, FiniteAutomaton.EPSILON);
 			}
-			result.createTransition(accepting, start, FiniteAutomaton.EPSILON);
-
-			// add states from orig NFA
-			result.addAll(f);
-
-			// add ε-transition from the new start state to the old start state
-			result.createTransition(start, f.getStartState(), FiniteAutomaton.EPSILON);
-			f.getStartState().setStart(false);
-
-			// add ε-transition from the old accepting state to the new accepting state
-			result.createTransition(f.getUniqueAcceptingState(), accepting, FiniteAutomaton.EPSILON);
-			f.getUniqueAcceptingState().setAccepting(false);
-
-			// done
-			return check(result);
-		} else if (c >= 0 && c == '?') {
-			expect('?');
-			
-			// Create new start and accepting states, connected to/from
-			// the original start and accepting states, and create an
-			// epsilon transition from the new start state to the new
-			// accepting state (allowing 0 occurrences of strings accepted
-			// by the original FA.)
-			State start = f.getStartState();
-			State accept = f.getUniqueAcceptingState();
-			State newStart = f.createState();
-			State newAccept = f.createState();
-			f.createTransition(newStart, start, FiniteAutomaton.EPSILON);     // allow 1 occurrence
-			f.createTransition(accept, newAccept, FiniteAutomaton.EPSILON);   // as above
-			start.setStart(false);
-			newStart.setStart(true);
-			accept.setAccepting(false);
-			newAccept.setAccepting(true);
-			f.createTransition(newStart, newAccept, FiniteAutomaton.EPSILON); // allow 0 occurrences
-			
-			return f;
+			accepting = Collections.singletonList(newAccept);
 		}
-		
-		// No operator (*+?) was applied, so just return whatever parseF() returned
-		return f;
-	}
 
-	private FiniteAutomaton parseF() {
-		// F := s          literal characters
-		// F := ε          epsilon
-		// F := (R)        grouping
-
-		int c = next();
-
-		if (c == '(') {
-			// grouping
-			FiniteAutomaton r = parseR();
-			expect(')');
-			return r;
-		} else {
-			// literal character or ε
-			FiniteAutomaton result = new FiniteAutomaton();
-			State start = result.createState();
-			start.setStart(true);
-			State accepting = result.createState();
-			accepting.setAccepting(true);
-
-			result.createTransition(start, accepting, c == 'ε' ? FiniteAutomaton.EPSILON : (char)c);
-
-			return check(result);
+		List<Transition> transitions = reduced.getAllTransitions();
+		Fragment result = new Fragment(reduced.getNumStates(), reduced.getStartState().getNumber(),
+				accepting.get(0).getNumber(), transitions.size());
+		for (int i = 0; i < result.from.length; i++) {
+			Transition t = transitions.get(i);
+			result.from[i] = t.getFromState().getNumber();
+			result.to[i] = t.getToState().getNumber();
+			result.symbols[i] = t.getSymbol();
 		}
+		return result;
 	}
 
-	private FiniteAutomaton check(FiniteAutomaton result) {
-		if (CHECK_NFA) {
-			result.getStartState();
-			result.getUniqueAcceptingState();
+	// Add a copy of a recorded fragment to the result, and push it
+	// on the fragment stack.
+	private void splice(Fragment fragment) {
+		int base = result.getNumStates();
+		for (int s = 0; s < fragment.numStates; s++) {
+			result.createState();
 		}
-		return result;
+		for (int i = 0; i < fragment.from.length; i++) {
+			result.createTransition(result.getState(base + fragment.from[i]), result.getState(base + fragment.to[i]), fragment.symbols[i]);
+		}
+		push(result.getState(base + fragment.start), result.getState(base + fragment.accepting));
 	}
 
-	private int peek() {
-		while (this.nextCh < 0 && pos < regexp.length()) {
-			int nextCh = regexp.charAt(pos++);
-			
-			// It's only a "valid" character if it isn't a space character
-			if (!Character.isSpaceChar(nextCh)) {
-				this.nextCh = convert(nextCh);
-				break;
+	// Build the fragment for a subexpression, replacing the
+	// fragments for its children.
+	private void build(Regexp r) {
+		int numChildren = r.getChildren().size();
+		int first = fragmentStart.size() - numChildren;
+
+		switch (r.getKind()) {
+		case EMPTY_SET:
+		case EPSILON:
+		case SYMBOL:
+			{
+				State start = result.createState();
+				State accepting = result.createState();
+				if (r.getKind() != Regexp.Kind.EMPTY_SET) {
+					result.createTransition(start, accepting, r.getKind() == Regexp.Kind.EPSILON ? FiniteAutomaton.EPSILON : r.getSymbol());
+				}
+				push(start, accepting);
+			}
+			break;
+
+		case CONCAT:
+			{
+				// create ε-transitions connecting each part's accepting state
+				// to the next part's start state
+				for (int i = first; i < first + numChildren - 1; i++) {
+					result.createTransition(fragmentAccept.get(i), fragmentStart.get(i + 1), FiniteAutomaton.EPSILON);
+				}
+				State start = fragmentStart.get(first);
+				State accepting = fragmentAccept.get(first + numChildren - 1);
+				pop(numChildren);
+				push(start, accepting);
+			}
+			break;
+
+		case ALTERNATION:
+			{
+				// new start and accepting states, connected to/from
+				// the start and accepting states of each alternative
+				State start = result.createState();
+				State accepting = result.createState();
+				for (int i = first; i < first + numChildren; i++) {
+					result.createTransition(start, fragmentStart.get(i), FiniteAutomaton.EPSILON);
+					result.createTransition(fragmentAccept.get(i), accepting, FiniteAutomaton.EPSILON);
+				}
+				pop(numChildren);
+				push(start, accepting);
 			}
+			break;
+
+		case STAR:
+		case PLUS:
+			{
+				// new start and accepting states, with ε-transitions from
+				//   - start to accepting (only for '*', not for '+') and,
+				//   - accepting to start state (both '*' and '+')
+				// This allows 0 or more repetitions for '*', and 1 or more
+				// repetitions for '+'.
+				State start = result.createState();
+				State accepting = result.createState();
+				if (r.getKind() == Regexp.Kind.STAR) {
+					result.createTransition(start, accepting, FiniteAutomaton.EPSILON);
+				}
+				result.createTransition(accepting, start, FiniteAutomaton.EPSILON);
+				result.createTransition(start, fragmentStart.get(first), FiniteAutomaton.EPSILON);
+				result.createTransition(fragmentAccept.get(first), accepting, FiniteAutomaton.EPSILON);
+				pop(1);
+				push(start, accepting);
+			}
+			break;
+
+		case OPTIONAL:
+			{
+				// new start and accepting states, connected to/from the
+				// original start and accepting states, and an epsilon transition
+				// from the new start state to the new accepting state
+				// (allowing 0 occurrences)
+				State newStart = result.createState();
+				State newAccept = result.createState();
+				result.createTransition(newStart, fragmentStart.get(first), FiniteAutomaton.EPSILON);
+				result.createTransition(fragmentAccept.get(first), newAccept, FiniteAutomaton.EPSILON);
+				result.createTransition(newStart, newAccept, FiniteAutomaton.EPSILON);
+				pop(1);
+				push(newStart, newAccept);
+			}
+			break;
+
+		default:
+			throw new IllegalStateException("Unknown regexp kind " + r.getKind());
 		}
-		
-		return this.nextCh;
 	}
 
-	private int convert(int c) {
-		return c == 'e' ? FiniteAutomaton.EPSILON : c;
+	private void push(State start, State accepting) {
+		fragmentStart.add(start);
+		fragmentAccept.add(accepting);
 	}
 
-	private int next() {
-		int c = peek();
-		if (c < 0) {
-			throw new IllegalArgumentException("regexp ended unexpectedly");
+	private void pop(int n) {
+		for (int i = 0; i < n; i++) {
+			fragmentStart.remove(fragmentStart.size() - 1);
+			fragmentAccept.remove(fragmentAccept.size() - 1);
 		}
-		nextCh = -1;
-		return c;
 	}
 
-	private void expect(int c) {
-		int n = next();
-		if (n != c) {
-			throw new IllegalArgumentException("regexp parse error: expected " + ((char)c) + ", saw " + ((char)n));
+	private FiniteAutomaton check(FiniteAutomaton result) {
+		if (CHECK_NFA) {
+			result.getStartState();
+			result.getUniqueAcceptingState();
 		}
+		return result;
 	}
 }
@@ -39,26 +39,43 @@ public class DetermineEquivalenceOfRegexps {
 	}
 
 	public static void compareRegexps(String first, String second, String labelFirst, String labelSecond) {
+		compareRegexps(first, second, labelFirst, labelSecond, null);
+	}
+
+	/**
+	 * Compare two regexps and print a report of whether they are
+	 * equivalent, with examples of strings on which they differ.
+	 * 
+	 * @param first        the first regexp (e.g., a solution)
+	 * @param second       the second regexp (e.g., a student answer)
+	 * @param labelFirst   label describing the first regexp
+	 * @param labelSecond  label describing the second regexp
+	 * @param strategy     the {@link EquivalenceCheckStrategy} to use, or null for the default
+	 */
+	public static void compareRegexps(String first, String second, String labelFirst, String labelSecond, EquivalenceCheckStrategy strategy) {
 		FiniteAutomaton a = FiniteAutomatonUtil.convertToNFA(first);
 		FiniteAutomaton b = FiniteAutomatonUtil.convertToNFA(second);
 		
-		boolean equivalent = true;
+		EquivalenceChecker checker = new EquivalenceChecker();
+		if (strategy != null) {
+			checker.setStrategy(strategy);
+		}
+		checker.setUnknown(b);
+		checker.setKnown(a);
+		checker.execute();
+		EquivalenceCheckResult result = checker.getResult();
 		
-		FiniteAutomaton aMinusB = FiniteAutomatonUtil.difference(a, b);
-		if (FiniteAutomatonUtil.recognizesNonEmptyLanguage(aMinusB)) {
+		if (result.isUnder()) {
 			System.out.println(labelSecond + " does not generate some strings in " + labelFirst);
-			Util.printExamples(aMinusB, 4);
-			equivalent = false;
+			Util.printExamples(checker.getUnderproducedWitnesses(4));
 		}
 		
-		FiniteAutomaton bMinusA = FiniteAutomatonUtil.difference(b, a);
-		if (FiniteAutomatonUtil.recognizesNonEmptyLanguage(bMinusA)) {
+		if (result.isOver()) {
 			System.out.println(labelSecond + " generates some strings not in " + labelFirst);
-			Util.printExamples(bMinusA, 4);
-			equivalent = false;
+			Util.printExamples(checker.getOverproducedWitnesses(4));
 		}
 		
-		if (equivalent){
+		if (result == EquivalenceCheckResult.EQUIVALENT){
 			System.out.println("Equivalent!");
 		}
 	}
@@ -0,0 +1,65 @@
+// RegexToolkit - A Java library for regular expressions and finite automata
+// Copyright (C) 2013, David H. Hovemeyer <david.hovemeyer@gmail.com>
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+// 
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+// IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+// CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+// TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+// SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package edu.ycp.cs.dh.regextk;
+
+/**
+ * View of a (possibly nondeterministic) FiniteAutomaton as an
+ * {@link ImplicitAutomaton} whose states are sets of states of the
+ * FiniteAutomaton, as in the subset construction (see {@link ConvertNFAToDFA}).
+ * There is no transition where the set reached would be empty.
+ */
+public class DeterminizedView implements ImplicitAutomaton<StateSet> {
+	private CompactAutomaton fa;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param fa a FiniteAutomaton
+	 */
+	public DeterminizedView(FiniteAutomaton fa) {
+		this.fa = new CompactAutomaton(fa);
+	}
+
+	@Override
+	public StateSet getStartState() {
+		StateSet start = new StateSet(fa.getNumStates());
+		start.add(fa.getStartState());
+		return FiniteAutomatonUtil.closure(fa, start);
+	}
+
+	@Override
+	public boolean isAccepting(StateSet state) {
+		return FiniteAutomatonUtil.containsAcceptingState(fa, state);
+	}
+
+	@Override
+	public char[] getAlphabet() {
+		return fa.getAlphabet();
+	}
+
+	@Override
+	public StateSet getSuccessor(StateSet state, char symbol) {
+		StateSet next = FiniteAutomatonUtil.closure(fa, FiniteAutomatonUtil.followAll(fa, state, symbol));
+		return next.isEmpty() ? null : next;
+	}
+}
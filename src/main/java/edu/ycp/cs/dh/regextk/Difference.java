@@ -28,10 +28,21 @@ import java.util.Set;
 
 public class Difference implements FiniteAutomatonTransformer {
 	private List<FiniteAutomaton> inputList;
+	private boolean trim;
 	
 	public Difference() {
 		inputList = new ArrayList<FiniteAutomaton>();
 	}
+	
+	/**
+	 * Set whether or not to remove useless states from the result
+	 * (using {@link Trim}).  The default is not to remove them.
+	 * 
+	 * @param trim true if useless states should be removed
+	 */
+	public void setTrim(boolean trim) {
+		this.trim = trim;
+	}
 
 	@Override
 	public void add(FiniteAutomaton input) {
@@ -41,6 +52,19 @@ public class Difference implements FiniteAutomatonTransformer {
 		inputList.add(input);
 	}
 
+	/**
+	 * Get a view recognizing the difference A - B of the languages
+	 * recognized by two FiniteAutomata, without building a new automaton.
+	 * 
+	 * @param a FiniteAutomaton A
+	 * @param b FiniteAutomaton B
+	 * @return the view, whose states are pairs of sets of states of A and B
+	 */
+	public static ImplicitAutomaton<ProductView.Pair<StateSet, StateSet>> view(FiniteAutomaton a, FiniteAutomaton b) {
+		// A - B = A ∩ 'B, as below
+		return Intersection.view(new DeterminizedView(a), Complement.view(b));
+	}
+
 	@Override
 	public FiniteAutomaton execute(FiniteAutomatonTransformerMode mode) {
 		if (inputList.size() != 2) {
@@ -60,6 +84,7 @@ public class Difference implements FiniteAutomatonTransformer {
 		Intersection makeIntersection = new Intersection();
 		makeIntersection.add(inputList.get(0));
 		makeIntersection.add(bComplement);
+		makeIntersection.setTrim(trim);
 		
 		return makeIntersection.execute(mode);
 	}
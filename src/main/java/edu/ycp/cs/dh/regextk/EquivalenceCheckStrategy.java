@@ -0,0 +1,93 @@
+// RegexToolkit - A Java library for regular expressions and finite automata
+// Copyright (C) 2013, David H. Hovemeyer <david.hovemeyer@gmail.com>
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+// 
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+// IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+// CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+// TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+// SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package edu.ycp.cs.dh.regextk;
+
+import java.util.Arrays;
+
+/**
+ * Algorithms that an {@link EquivalenceChecker} can use.
+ */
+public enum EquivalenceCheckStrategy {
+	/**
+	 * Build automata recognizing both set differences, and check
+	 * whether they recognize the empty language.
+	 */
+	DIFFERENCE,
+	
+	/**
+	 * Determinize both automata and use the Hopcroft-Karp
+	 * union-find algorithm.
+	 */
+	HOPCROFT_KARP,
+	
+	/**
+	 * Check language inclusion in both directions directly on the
+	 * nondeterministic automata, using antichains and simulation.
+	 * This avoids determinizing automata that would blow up.
+	 */
+	ANTICHAIN,
+	
+	/**
+	 * Explore pairs of sets of states of the two automata, pruning
+	 * pairs using bisimulation up to congruence (HKC).
+	 */
+	HKC;
+	
+	/**
+	 * Find the strategy with given name.  Case is ignored, and
+	 * dashes may be used in place of underscores.
+	 * 
+	 * @param name the name of a strategy, e.g. "hopcroft-karp"
+	 * @return the strategy
+	 * @throws IllegalArgumentException if there is no strategy with the name
+	 */
+	public static EquivalenceCheckStrategy fromName(String name) {
+		String normalized = name.trim().toUpperCase().replace('-', '_');
+		for (EquivalenceCheckStrategy strategy : values()) {
+			if (strategy.name().equals(normalized)) {
+				return strategy;
+			}
+		}
+		throw new IllegalArgumentException("Unknown equivalence check strategy " + name + " (valid strategies are " + Arrays.toString(values()) + ")");
+	}
+	
+	/**
+	 * Create an object implementing this strategy.
+	 * 
+	 * @return a {@link CheckEquivalence} object implementing this strategy
+	 */
+	public CheckEquivalence createChecker() {
+		switch (this) {
+		case DIFFERENCE:
+			return new CheckEquivalenceByDifference();
+		case HOPCROFT_KARP:
+			return new CheckEquivalenceHopcroftKarp();
+		case ANTICHAIN:
+			return new CheckEquivalenceAntichain();
+		case HKC:
+			return new CheckEquivalenceHKC();
+		default:
+			throw new IllegalStateException("Unknown strategy " + this);
+		}
+	}
+}
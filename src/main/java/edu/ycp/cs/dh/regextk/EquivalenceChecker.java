@@ -22,19 +22,28 @@
 
 package edu.ycp.cs.dh.regextk;
 
+import java.util.List;
+
 /**
  * Check an unknown FiniteAutomaton against a known one to see if
  * they recognize the same language.
+ * 
+ * The algorithm used is determined by an {@link EquivalenceCheckStrategy}:
+ * the default is {@link EquivalenceCheckStrategy#HOPCROFT_KARP}.
  */
 public class EquivalenceChecker {
 	private FiniteAutomaton unknown;
 	private FiniteAutomaton known;
+	private EquivalenceCheckStrategy strategy;
+	private CheckEquivalence checker;
 	private FiniteAutomaton overproduced;
 	private FiniteAutomaton underproduced;
+	private LazyDifference overproducedDifference;
+	private LazyDifference underproducedDifference;
 	private EquivalenceCheckResult result;
 
 	public EquivalenceChecker() {
-
+		this.strategy = EquivalenceCheckStrategy.HOPCROFT_KARP;
 	}
 
 	public void setUnknown(FiniteAutomaton unknown) {
@@ -45,32 +54,107 @@ public class EquivalenceChecker {
 		this.known = known;
 	}
 
+	/**
+	 * Set the algorithm used to check equivalence.
+	 * 
+	 * @param strategy the {@link EquivalenceCheckStrategy}
+	 */
+	public void setStrategy(EquivalenceCheckStrategy strategy) {
+		this.strategy = strategy;
+	}
+
 	private EquivalenceCheckResult doCheck() {
-		this.overproduced = FiniteAutomatonUtil.difference(unknown, known);
-		this.underproduced = FiniteAutomatonUtil.difference(known, unknown);
-
-		boolean over = FiniteAutomatonUtil.recognizesNonEmptyLanguage(overproduced);
-		boolean under = FiniteAutomatonUtil.recognizesNonEmptyLanguage(underproduced);
-
-		if (!over && !under) {
-			return EquivalenceCheckResult.EQUIVALENT;
-		} else if (!over) {
-			return EquivalenceCheckResult.UNDER;
-		} else if (!under) {
-			return EquivalenceCheckResult.OVER;
-		} else {
-			return EquivalenceCheckResult.OVER_AND_UNDER;
-		}
+		this.checker = strategy.createChecker();
+		this.overproduced = null;
+		this.underproduced = null;
+		this.overproducedDifference = null;
+		this.underproducedDifference = null;
+
+		checker.setUnknown(unknown);
+		checker.setKnown(known);
+		return checker.execute();
 	}
 
+	/**
+	 * Get a DFA recognizing the strings accepted by the unknown
+	 * automaton but not the known automaton.  Depending on the
+	 * strategy, this may be built on demand.
+	 * 
+	 * @return DFA recognizing the overproduced strings
+	 */
 	public FiniteAutomaton getOverproduced() {
+		if (overproduced == null) {
+			overproduced = checker.getOverproduced();
+		}
 		return overproduced;
 	}
 
+	/**
+	 * Get a DFA recognizing the strings accepted by the known
+	 * automaton but not the unknown automaton.  Depending on the
+	 * strategy, this may be built on demand.
+	 * 
+	 * @return DFA recognizing the underproduced strings
+	 */
 	public FiniteAutomaton getUnderproduced() {
+		if (underproduced == null) {
+			underproduced = checker.getUnderproduced();
+		}
 		return underproduced;
 	}
 
+	/**
+	 * @return a shortest string accepted by the unknown automaton but not
+	 *         by the known automaton, or null if there is no such string
+	 */
+	public String getOverproducedWitness() {
+		return checker.getOverproducedWitness();
+	}
+
+	/**
+	 * @return a shortest string accepted by the known automaton but not
+	 *         by the unknown automaton, or null if there is no such string
+	 */
+	public String getUnderproducedWitness() {
+		return checker.getUnderproducedWitness();
+	}
+
+	/**
+	 * Get some strings accepted by the unknown automaton but not by the
+	 * known automaton, shortest first.  These are found without building
+	 * the overproduced DFA (see {@link LazyDifference}).
+	 * 
+	 * @param maxStrings the maximum number of strings to find
+	 * @return list of overproduced strings (empty if there are none)
+	 */
+	public List<String> getOverproducedWitnesses(int maxStrings) {
+		if (overproducedDifference == null) {
+			// reuse the part of the difference explored by the check, if any
+			overproducedDifference = (checker instanceof CheckEquivalenceByDifference)
+					? ((CheckEquivalenceByDifference) checker).getOverproducedDifference()
+					: new LazyDifference(unknown, known);
+		}
+		return overproducedDifference.getWitnesses(maxStrings);
+	}
+
+	/**
+	 * Get some strings accepted by the known automaton but not by the
+	 * unknown automaton, shortest first.  These are found without building
+	 * the underproduced DFA (see {@link LazyDifference}).
+	 * 
+	 * @param maxStrings the maximum number of strings to find
+	 * @return list of underproduced strings (empty if there are none)
+	 */
+	public List<String> getUnderproducedWitnesses(int maxStrings) {
+		if (underproducedDifference == null) {
+			// reuse the part of the difference explored by the check, if any
+			underproducedDifference = (checker instanceof CheckEquivalenceByDifference)
+					? ((CheckEquivalenceByDifference) checker).getUnderproducedDifference()
+					: new LazyDifference(known, unknown);
+		}
+		return underproducedDifference.getWitnesses(maxStrings);
+	}
+
 	public void execute() {
 		result = doCheck();
 	}
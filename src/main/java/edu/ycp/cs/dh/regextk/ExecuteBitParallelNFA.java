@@ -0,0 +1,274 @@
+// RegexToolkit - A Java library for regular expressions and finite automata
+// Copyright (C) 2013, David H. Hovemeyer <david.hovemeyer@gmail.com>
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+// 
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+// IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+// CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+// TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+// SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+
+package edu.ycp.cs.dh.regextk;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Implementation of ExecuteFiniteAutomaton that can be used with
+ * nondeterministic finite automata, and which simulates small automata
+ * using bit-parallelism: the set of current states is a bit mask (one or
+ * more longs), and each input symbol is processed using a few table
+ * lookups and bitwise operations, with no allocation.
+ * 
+ * Epsilon transitions are removed (so epsilon closures are accounted for
+ * in advance), useless states are removed, and then each state is split
+ * into one copy per symbol on which it is entered, so that all of the
+ * transitions into a state are on the same symbol, as in Glushkov's
+ * position automaton.  If D is the set of current states, the set of
+ * states after reading symbol c is then Follow(D) &amp; B[c], where
+ * Follow(D) is the set of states with a transition from a state in D,
+ * and B[c] is the set of states entered on c.  Follow(D) is computed
+ * one byte of D at a time, using tables of the follow sets of all
+ * combinations of 8 states.
+ * 
+ * If the automaton has too many states (after splitting), it is
+ * executed using {@link ExecuteNFA} instead.
+ */
+public class ExecuteBitParallelNFA implements ExecuteFiniteAutomaton {
+	/**
+	 * Default maximum number of states simulated using bit-parallelism.
+	 */
+	public static final int DEFAULT_MAX_STATES = 256;
+
+	private int maxStates;
+
+	// the automaton, if it is too large
+	private ExecuteNFA fallback;
+
+	private int numWords;
+	private char[] alphabet;
+	private int minCC;
+	private int[] symbolIndex;
+
+	// followTable[((j*256)+b)*numWords + w] is word w of the union of the
+	// follow sets of the states in the bits of b, which are states 8j to 8j+7
+	private long[] followTable;
+
+	// symbolMasks[a*numWords + w] is word w of the set of states
+	// entered on alphabet[a]
+	private long[] symbolMasks;
+	private long[] acceptingMask;
+
+	/**
+	 * Constructor: automata with up to {@link #DEFAULT_MAX_STATES}
+	 * states are simulated using bit-parallelism.
+	 */
+	public ExecuteBitParallelNFA() {
+		this(DEFAULT_MAX_STATES);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param maxStates maximum number of states (after splitting states so that
+	 *                  all transitions into a state are on the same symbol)
+	 *                  of automata simulated using bit-parallelism
+	 */
+	public ExecuteBitParallelNFA(int maxStates) {
+		this.maxStates = maxStates;
+	}
+
+	@Override
+	public void setAutomaton(FiniteAutomaton fa) {
+		fallback = null;
+		CompactAutomaton ca = new CompactAutomaton(FiniteAutomatonUtil.trim(FiniteAutomatonUtil.removeEpsilonTransitions(fa)));
+		int n = ca.getNumStates();
+
+		// split the states: state 0 is the start state (before any input),
+		// and each other state is a pair (s, c) of a state s of the automaton
+		// and a symbol c on which s is entered
+		Map<Long, Integer> split = new HashMap<Long, Integer>();
+		int numSplit = 1;
+		for (int s = 0; s < n; s++) {
+			for (int i = ca.getTransitionStart(s); i < ca.getTransitionEnd(s); i++) {
+				Long key = pair(ca.getTarget(i), ca.getSymbol(i));
+				if (!split.containsKey(key)) {
+					split.put(key, numSplit++);
+				}
+			}
+			if (numSplit > maxStates) {
+				fallback = new ExecuteNFA();
+				fallback.setAutomaton(fa);
+				return;
+			}
+		}
+		int[] original = new int[numSplit];
+		char[] enteredOn = new char[numSplit];
+		original[0] = ca.getStartState();
+		for (Map.Entry<Long, Integer> e : split.entrySet()) {
+			original[e.getValue()] = (int) (e.getKey() >>> 16);
+			enteredOn[e.getValue()] = (char) (e.getKey() & 0xFFFF);
+		}
+
+		numWords = (numSplit + 63) / 64;
+		alphabet = ca.getAlphabet();
+		if (alphabet.length == 0) {
+			minCC = 0;
+			symbolIndex = new int[0];
+		} else {
+			minCC = alphabet[0];
+			symbolIndex = new int[alphabet[alphabet.length - 1] + 1 - minCC];
+			Arrays.fill(symbolIndex, -1);
+			for (int a = 0; a < alphabet.length; a++) {
+				symbolIndex[alphabet[a] - minCC] = a;
+			}
+		}
+
+		// follow set of each state of the automaton (which is
+		// shared by all of the split states it becomes)
+		long[] follow = new long[n * numWords];
+		for (int s = 0; s < n; s++) {
+			for (int i = ca.getTransitionStart(s); i < ca.getTransitionEnd(s); i++) {
+				setBit(follow, s, split.get(pair(ca.getTarget(i), ca.getSymbol(i))));
+			}
+		}
+
+		// follow sets of all combinations of the states in each byte
+		int numBytes = (numSplit + 7) / 8;
+		followTable = new long[numBytes * 256 * numWords];
+		for (int j = 0; j < numBytes; j++) {
+			for (int b = 1; b < 256; b++) {
+				int h = 8 * j + Integer.numberOfTrailingZeros(b);
+				int entry = (j * 256 + b) * numWords;
+				int rest = (j * 256 + (b & (b - 1))) * numWords;
+				for (int w = 0; w < numWords; w++) {
+					followTable[entry + w] = followTable[rest + w] | (h < numSplit ? follow[original[h] * numWords + w] : 0L);
+				}
+			}
+		}
+
+		symbolMasks = new long[alphabet.length * numWords];
+		acceptingMask = new long[numWords];
+		for (int h = 0; h < numSplit; h++) {
+			if (h > 0) {
+				setBit(symbolMasks, symbolIndex[enteredOn[h] - minCC], h);
+			}
+			if (ca.isAccepting(original[h])) {
+				setBit(acceptingMask, 0, h);
+			}
+		}
+	}
+
+	private static Long pair(int s, char c) {
+		return ((long) s << 16) | c;
+	}
+
+	private void setBit(long[] masks, int row, int bit) {
+		masks[row * numWords + (bit >>> 6)] |= 1L << (bit & 63);
+	}
+
+	/**
+	 * @return true if the automaton is simulated using bit-parallelism,
+	 *         false if it is too large, and is simulated using {@link ExecuteNFA}
+	 */
+	public boolean isBitParallel() {
+		return fallback == null;
+	}
+
+	@Override
+	public Answer execute(String s) {
+		if (fallback != null) {
+			return fallback.execute(s);
+		}
+		return numWords == 1 ? executeSingleWord(s) : executeMultipleWords(s);
+	}
+
+	private Answer executeSingleWord(String s) {
+		long current = 1L; // the start state
+		for (int i = 0; i < s.length(); i++) {
+			int a = index(s.charAt(i));
+			if (a < 0) {
+				return Answer.REJECT;
+			}
+
+			// follow sets of the current states, one (nonzero) byte at a time
+			long next = 0L;
+			for (long d = current; d != 0L; ) {
+				int j = Long.numberOfTrailingZeros(d) >>> 3;
+				next |= followTable[j * 256 + (int) ((current >>> (8 * j)) & 0xFF)];
+				d &= ~(0xFFL << (8 * j));
+			}
+			current = next & symbolMasks[a];
+			if (current == 0L) {
+				return Answer.REJECT;
+			}
+		}
+		return (current & acceptingMask[0]) != 0L ? Answer.ACCEPT : Answer.REJECT;
+	}
+
+	private Answer executeMultipleWords(String s) {
+		int k = numWords;
+		long[] current = new long[k];
+		long[] next = new long[k];
+		current[0] = 1L; // the start state
+		for (int i = 0; i < s.length(); i++) {
+			int a = index(s.charAt(i));
+			if (a < 0) {
+				return Answer.REJECT;
+			}
+
+			// follow sets of the current states, one (nonzero) byte at a time
+			Arrays.fill(next, 0L);
+			for (int w = 0; w < k; w++) {
+				long word = current[w];
+				for (long d = word; d != 0L; ) {
+					int bit = Long.numberOfTrailingZeros(d) & ~7;
+					int entry = ((w * 8 + (bit >>> 3)) * 256 + (int) ((word >>> bit) & 0xFF)) * k;
+					for (int x = 0; x < k; x++) {
+						next[x] |= followTable[entry + x];
+					}
+					d &= ~(0xFFL << bit);
+				}
+			}
+
+			long any = 0L;
+			int row = a * k;
+			for (int w = 0; w < k; w++) {
+				next[w] &= symbolMasks[row + w];
+				any |= next[w];
+			}
+			if (any == 0L) {
+				return Answer.REJECT;
+			}
+			long[] tmp = current;
+			current = next;
+			next = tmp;
+		}
+
+		for (int w = 0; w < k; w++) {
+			if ((current[w] & acceptingMask[w]) != 0L) {
+				return Answer.ACCEPT;
+			}
+		}
+		return Answer.REJECT;
+	}
+
+	private int index(char c) {
+		int i = c - minCC;
+		return i >= 0 && i < symbolIndex.length ? symbolIndex[i] : -1;
+	}
+}
@@ -0,0 +1,311 @@
+// RegexToolkit - A Java library for regular expressions and finite automata
+// Copyright (C) 2013, David H. Hovemeyer <david.hovemeyer@gmail.com>
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+// 
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+// IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+// CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+// TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+// SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+
+package edu.ycp.cs.dh.regextk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Implementation of ExecuteFiniteAutomaton that works only with deterministic
+ * finite automata, and executes them on UTF-8 encoded input without
+ * decoding it.  The automaton is converted to an automaton whose input
+ * symbols are bytes: each transition on a character becomes a path of
+ * transitions on the bytes of its UTF-8 encoding (a pair of transitions
+ * on a surrogate pair becomes a path on the encoding of the supplementary
+ * character.)  The result is stored as a table with one row of 256 entries
+ * per state, so each byte of input is processed with a single table lookup.
+ * 
+ * Input can be a byte array, a {@link ByteBuffer}, or a {@link FileChannel},
+ * which is memory-mapped (in pieces, so files can be larger than 2GB.)
+ * Either the entire input, or each line of the input, can be checked.
+ */
+public class ExecuteByteDFA implements ExecuteFiniteAutomaton {
+	/**
+	 * Receives the result of executing the automaton on each line of input.
+	 */
+	public interface LineListener {
+		/**
+		 * Called for each line of input.
+		 * 
+		 * @param lineNumber the line number (the first line is line 1)
+		 * @param answer     {@link Answer#ACCEPT} if the line is accepted,
+		 *                   {@link Answer#REJECT} if it is rejected
+		 */
+		public void line(long lineNumber, Answer answer);
+	}
+
+	// state 0 is a dead state: it has a transition to itself on every
+	// byte, so no special case is needed for missing transitions
+	private static final int DEAD = 0;
+
+	// maximum number of bytes of a file mapped at once
+	private static final long MAX_MAPPING = 1L << 30;
+
+	private int[] next;
+	private boolean[] accepting;
+	private int numStates;
+	private int startState;
+
+	@Override
+	public void setAutomaton(FiniteAutomaton fa) {
+		if (!FiniteAutomatonUtil.isDeterministic(fa)) {
+			throw new IllegalArgumentException("ExecuteByteDFA can only be used with a deterministic finite automaton");
+		}
+
+		// state s of the automaton is state s+1 of the byte automaton;
+		// states for partially-read characters are created as needed
+		int n = fa.getNumStates();
+		numStates = n + 1;
+		next = new int[numStates * 256];
+		for (Transition t : fa.getAllTransitions()) {
+			char c = t.getSymbol();
+			int from = t.getFromState().getNumber() + 1;
+			if (Character.isHighSurrogate(c)) {
+				for (Transition u : fa.getTransitions(t.getToState())) {
+					if (Character.isLowSurrogate(u.getSymbol())) {
+						addPath(from, Character.toCodePoint(c, u.getSymbol()), u.getToState().getNumber() + 1);
+					}
+				}
+			} else if (!Character.isSurrogate(c)) {
+				addPath(from, c, t.getToState().getNumber() + 1);
+			}
+			// (a low surrogate on its own can't occur in UTF-8 input)
+		}
+		next = Arrays.copyOf(next, numStates * 256);
+
+		accepting = new boolean[numStates];
+		for (State s : fa.getStates()) {
+			accepting[s.getNumber() + 1] = s.isAccepting();
+		}
+		startState = fa.getStartState().getNumber() + 1;
+	}
+
+	// Add transitions on the bytes of the UTF-8 encoding of a code point.
+	private void addPath(int from, int codePoint, int to) {
+		int[] bytes = new int[4];
+		int len;
+		if (codePoint < 0x80) {
+			bytes[0] = codePoint;
+			len = 1;
+		} else if (codePoint < 0x800) {
+			bytes[0] = 0xC0 | (codePoint >> 6);
+			bytes[1] = 0x80 | (codePoint & 0x3F);
+			len = 2;
+		} else if (codePoint < 0x10000) {
+			bytes[0] = 0xE0 | (codePoint >> 12);
+			bytes[1] = 0x80 | ((codePoint >> 6) & 0x3F);
+			bytes[2] = 0x80 | (codePoint & 0x3F);
+			len = 3;
+		} else {
+			bytes[0] = 0xF0 | (codePoint >> 18);
+			bytes[1] = 0x80 | ((codePoint >> 12) & 0x3F);
+			bytes[2] = 0x80 | ((codePoint >> 6) & 0x3F);
+			bytes[3] = 0x80 | (codePoint & 0x3F);
+			len = 4;
+		}
+
+		int state = from;
+		for (int i = 0; i < len - 1; i++) {
+			int target = next[(state << 8) | bytes[i]];
+			if (target == DEAD) {
+				target = numStates++;
+				if (numStates * 256 > next.length) {
+					next = Arrays.copyOf(next, 2 * next.length);
+				}
+				next[(state << 8) | bytes[i]] = target;
+			}
+			state = target;
+		}
+		next[(state << 8) | bytes[len - 1]] = to;
+	}
+
+	/**
+	 * @return the number of states of the byte automaton
+	 */
+	public int getNumStates() {
+		return numStates;
+	}
+
+	@Override
+	public Answer execute(String s) {
+		return execute(s.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Execute the automaton on UTF-8 encoded input.
+	 * 
+	 * @param input the input bytes
+	 * @return {@link Answer#ACCEPT} if the input is accepted,
+	 *         {@link Answer#REJECT} if it is rejected
+	 */
+	public Answer execute(byte[] input) {
+		return execute(ByteBuffer.wrap(input));
+	}
+
+	/**
+	 * Execute the automaton on UTF-8 encoded input: the bytes from
+	 * the buffer's position to its limit.  The buffer's position
+	 * is not changed.
+	 * 
+	 * @param input buffer containing the input bytes
+	 * @return {@link Answer#ACCEPT} if the input is accepted,
+	 *         {@link Answer#REJECT} if it is rejected
+	 */
+	public Answer execute(ByteBuffer input) {
+		return accepting[run(startState, input)] ? Answer.ACCEPT : Answer.REJECT;
+	}
+
+	/**
+	 * Execute the automaton on the UTF-8 encoded contents of a file,
+	 * which is memory-mapped rather than read.
+	 * 
+	 * @param channel the FileChannel of the file
+	 * @return {@link Answer#ACCEPT} if the contents are accepted,
+	 *         {@link Answer#REJECT} if they are rejected
+	 * @throws IOException if the file can't be mapped
+	 */
+	public Answer execute(FileChannel channel) throws IOException {
+		int state = startState;
+		long size = channel.size();
+		for (long pos = 0; pos < size && state != DEAD; pos += MAX_MAPPING) {
+			state = run(state, channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(MAX_MAPPING, size - pos)));
+		}
+		return accepting[state] ? Answer.ACCEPT : Answer.REJECT;
+	}
+
+	/**
+	 * Execute the automaton on each line of UTF-8 encoded input: the bytes
+	 * from the buffer's position to its limit.  Lines are terminated by
+	 * "\n" or "\r\n" (which is not part of the line); the last line
+	 * does not need to be terminated.  The buffer's position is not changed.
+	 * 
+	 * @param input    buffer containing the input bytes
+	 * @param listener the LineListener to notify of the result for each line
+	 *                 (may be null, if only the count is needed)
+	 * @return the number of accepted lines
+	 */
+	public long executeLines(ByteBuffer input, LineListener listener) {
+		LineScanner scanner = new LineScanner(listener);
+		scanner.scan(input);
+		return scanner.finish();
+	}
+
+	/**
+	 * Execute the automaton on each line of the UTF-8 encoded contents of
+	 * a file, which is memory-mapped rather than read.  Lines are terminated
+	 * by "\n" or "\r\n" (which is not part of the line); the last line
+	 * does not need to be terminated.
+	 * 
+	 * @param channel  the FileChannel of the file
+	 * @param listener the LineListener to notify of the result for each line
+	 *                 (may be null, if only the count is needed)
+	 * @return the number of accepted lines
+	 * @throws IOException if the file can't be mapped
+	 */
+	public long executeLines(FileChannel channel, LineListener listener) throws IOException {
+		LineScanner scanner = new LineScanner(listener);
+		long size = channel.size();
+		for (long pos = 0; pos < size; pos += MAX_MAPPING) {
+			scanner.scan(channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(MAX_MAPPING, size - pos)));
+		}
+		return scanner.finish();
+	}
+
+	// Run the automaton from given state on the bytes from the buffer's
+	// position to its limit, and return the state reached.
+	private int run(int state, ByteBuffer input) {
+		int[] next = this.next;
+		int end = input.limit();
+		for (int i = input.position(); i < end && state != DEAD; i++) {
+			state = next[(state << 8) | (input.get(i) & 0xFF)];
+		}
+		return state;
+	}
+
+	// Executes the automaton on each line of input, which may be
+	// split across several buffers.
+	private class LineScanner {
+		private final LineListener listener;
+		private long lineNumber;
+		private long numAccepted;
+		private int state;
+		private boolean lineStarted;
+
+		// if the last byte was '\r', the state before it
+		private int stateBeforeCR;
+
+		public LineScanner(LineListener listener) {
+			this.listener = listener;
+			this.state = startState;
+			this.stateBeforeCR = -1;
+		}
+
+		public void scan(ByteBuffer input) {
+			int[] next = ExecuteByteDFA.this.next;
+			int s = state;
+			int beforeCR = stateBeforeCR;
+			boolean started = lineStarted;
+			int end = input.limit();
+			for (int i = input.position(); i < end; i++) {
+				int b = input.get(i) & 0xFF;
+				if (b == '\n') {
+					endLine(beforeCR >= 0 ? beforeCR : s);
+					started = false;
+					s = startState;
+					beforeCR = -1;
+					continue;
+				}
+				beforeCR = b == '\r' ? s : -1;
+				s = next[(s << 8) | b];
+				started = true;
+			}
+			state = s;
+			stateBeforeCR = beforeCR;
+			lineStarted = started;
+		}
+
+		public long finish() {
+			// a final line with no '\n' has no line terminator to strip,
+			// so a trailing '\r' is part of the line
+			if (lineStarted) {
+				endLine(state);
+			}
+			return numAccepted;
+		}
+
+		private void endLine(int s) {
+			lineNumber++;
+			boolean accepted = accepting[s];
+			if (accepted) {
+				numAccepted++;
+			}
+			if (listener != null) {
+				listener.line(lineNumber, accepted ? Answer.ACCEPT : Answer.REJECT);
+			}
+		}
+	}
+}
@@ -28,6 +28,9 @@ import java.util.Set;
  * Implementation of ExecuteFiniteAutomaton that works only with deterministic
  * finite automata, but should be very fast because it uses a table-driven
  * approach.
+ * 
+ * To match input which is not available as a single String (e.g., a
+ * very large file read in chunks), use {@link #createStreamingMatcher()}.
  */
 public class ExecuteDFA implements ExecuteFiniteAutomaton {
 	private int minCC;
@@ -91,6 +94,20 @@ public class ExecuteDFA implements ExecuteFiniteAutomaton {
 		}
 	}
 	
+	/**
+	 * Create a {@link StreamingMatcher} which uses this object's
+	 * transition table.  The matcher is not affected by later calls
+	 * to {@link #setAutomaton(FiniteAutomaton)}.
+	 * 
+	 * @return a StreamingMatcher for the automaton
+	 */
+	public StreamingMatcher createStreamingMatcher() {
+		if (table == null) {
+			throw new IllegalStateException("No automaton has been set");
+		}
+		return new StreamingMatcher(minCC, table, startState, acceptingStates);
+	}
+
 	@Override
 	public Answer execute(String s) {
 		try {
@@ -0,0 +1,238 @@
+// RegexToolkit - A Java library for regular expressions and finite automata
+// Copyright (C) 2013, David H. Hovemeyer <david.hovemeyer@gmail.com>
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+// 
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+// IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+// CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+// TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+// SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package edu.ycp.cs.dh.regextk;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Implementation of ExecuteFiniteAutomaton that can be used with
+ * nondeterministic finite automata, and which determinizes the
+ * automaton on demand as input is processed.
+ * 
+ * Each set of NFA states reached is cached as a DFA state, along with
+ * the transitions out of it that have been followed, so most input
+ * symbols are processed with a single table lookup.  The cache has a
+ * memory budget in bytes: the size of a cached DFA state (its row of the
+ * transition table, its set of NFA states, and the bookkeeping needed to
+ * find it) is estimated from the number of NFA states and the size of the
+ * alphabet, and when the budget would be exceeded, the cache is flushed
+ * and rebuilt starting from the current state.  This means that, unlike
+ * {@link ExecuteDFA}, memory use is bounded by the cache budget, even when
+ * the equivalent DFA is very large.
+ */
+public class ExecuteLazyDFA implements ExecuteFiniteAutomaton {
+	/**
+	 * Default memory budget for the cache, in bytes.
+	 */
+	public static final long DEFAULT_MAX_CACHE_BYTES = 8L * 1024 * 1024;
+
+	// transition table entries for transitions not computed yet,
+	// and for transitions to the empty set of states
+	private static final int UNKNOWN = -2;
+	private static final int DEAD = -1;
+
+	private long maxCacheBytes;
+	private int maxCachedStates;
+	private CompactAutomaton fa;
+	private char[] alphabet;
+	private int minCC;
+	private int[] symbolIndex;
+	private StateSet startSet;
+
+	// the cache: cached DFA state i represents the set of NFA states
+	// sets[i], and next[i*alphabet.length+a] is the state reached from
+	// it on alphabet[a], or UNKNOWN if that has not been computed yet
+	private Map<StateSet, Integer> cache;
+	private StateSet[] sets;
+	private boolean[] accepting;
+	private int[] next;
+	private int numCached;
+	private int startState;
+	private int numFlushes;
+
+	/**
+	 * Constructor: the cache will use at most about
+	 * {@link #DEFAULT_MAX_CACHE_BYTES} bytes.
+	 */
+	public ExecuteLazyDFA() {
+		this(DEFAULT_MAX_CACHE_BYTES);
+	}
+
+	/**
+	 * Constructor.  The budget is approximate, since the size of
+	 * each cached state is estimated.  The cache always has room
+	 * for at least 2 states, even if they do not fit in the budget.
+	 * 
+	 * @param maxCacheBytes memory budget for the cache, in bytes
+	 */
+	public ExecuteLazyDFA(long maxCacheBytes) {
+		if (maxCacheBytes <= 0L) {
+			throw new IllegalArgumentException("Cache budget must be positive");
+		}
+		this.maxCacheBytes = maxCacheBytes;
+	}
+
+	@Override
+	public void setAutomaton(FiniteAutomaton fa) {
+		this.fa = new CompactAutomaton(fa);
+		this.alphabet = this.fa.getAlphabet();
+
+		// map character codes to indices in the alphabet
+		if (alphabet.length == 0) {
+			minCC = 0;
+			symbolIndex = new int[0];
+		} else {
+			minCC = alphabet[0];
+			symbolIndex = new int[alphabet[alphabet.length - 1] + 1 - minCC];
+			Arrays.fill(symbolIndex, -1);
+			for (int a = 0; a < alphabet.length; a++) {
+				symbolIndex[alphabet[a] - minCC] = a;
+			}
+		}
+
+		StateSet start = new StateSet(this.fa.getNumStates());
+		start.add(this.fa.getStartState());
+		startSet = FiniteAutomatonUtil.closure(this.fa, start);
+
+		// the number of states that fit in the budget (the transition
+		// table must also fit in an array)
+		long numStates = maxCacheBytes / getBytesPerState(this.fa.getNumStates(), alphabet.length);
+		numStates = Math.min(numStates, (Integer.MAX_VALUE - 8) / Math.max(alphabet.length, 1));
+		maxCachedStates = (int) Math.max(numStates, 2L);
+
+		int initialCapacity = Math.min(maxCachedStates, 16);
+		cache = new HashMap<StateSet, Integer>();
+		sets = new StateSet[initialCapacity];
+		accepting = new boolean[initialCapacity];
+		next = new int[initialCapacity * alphabet.length];
+		numFlushes = 0;
+		flush();
+	}
+
+	/**
+	 * @return the number of times the cache has been flushed
+	 *         since the automaton was set
+	 */
+	public int getNumFlushes() {
+		return numFlushes;
+	}
+
+	/**
+	 * @return the number of DFA states currently cached
+	 */
+	public int getNumCachedStates() {
+		return numCached;
+	}
+
+	/**
+	 * @return the number of DFA states that fit in the cache budget
+	 *         for the current automaton
+	 */
+	public int getMaxCachedStates() {
+		return maxCachedStates;
+	}
+
+	@Override
+	public Answer execute(String s) {
+		int k = alphabet.length;
+		int state = startState;
+		for (int i = 0; i < s.length(); i++) {
+			int c = s.charAt(i) - minCC;
+			if (c < 0 || c >= symbolIndex.length || symbolIndex[c] < 0) {
+				return Answer.REJECT; // symbol not in the alphabet
+			}
+			int a = symbolIndex[c];
+			int target = next[state * k + a];
+			if (target == UNKNOWN) {
+				target = computeTransition(state, a);
+			}
+			if (target == DEAD) {
+				return Answer.REJECT;
+			}
+			state = target;
+		}
+		return accepting[state] ? Answer.ACCEPT : Answer.REJECT;
+	}
+
+	// Find the state reached from given state on alphabet[a], adding
+	// it to the cache if necessary.  If adding the state flushes the
+	// cache, the transition is not recorded.
+	private int computeTransition(int state, int a) {
+		StateSet target = FiniteAutomatonUtil.closure(fa, FiniteAutomatonUtil.followAll(fa, sets[state], alphabet[a]));
+		if (target.isEmpty()) {
+			next[state * alphabet.length + a] = DEAD;
+			return DEAD;
+		}
+
+		Integer cached = cache.get(target);
+		if (cached != null) {
+			next[state * alphabet.length + a] = cached;
+			return cached;
+		}
+
+		if (numCached == maxCachedStates) {
+			numFlushes++;
+			flush();
+			cached = cache.get(target);
+			return cached != null ? cached : addState(target);
+		}
+		int result = addState(target);
+		next[state * alphabet.length + a] = result;
+		return result;
+	}
+
+	// Discard all cached states except the start state.
+	private void flush() {
+		cache.clear();
+		Arrays.fill(sets, null);
+		numCached = 0;
+		startState = addState(startSet);
+	}
+
+	private int addState(StateSet set) {
+		int k = alphabet.length;
+		if (numCached == sets.length) {
+			int capacity = Math.min(maxCachedStates, 2 * sets.length);
+			sets = Arrays.copyOf(sets, capacity);
+			accepting = Arrays.copyOf(accepting, capacity);
+			next = Arrays.copyOf(next, capacity * k);
+		}
+		int state = numCached++;
+		sets[state] = set;
+		accepting[state] = FiniteAutomatonUtil.containsAcceptingState(fa, set);
+		Arrays.fill(next, state * k, (state + 1) * k, UNKNOWN);
+		cache.put(set, state);
+		return state;
+	}
+
+	// Estimate the number of bytes used by a cached state: its row of the
+	// transition table, its StateSet (the object and the bitset), and its
+	// entries in the sets and accepting arrays and in the hash map
+	// (a node and a boxed Integer).
+	private static long getBytesPerState(int numNfaStates, int numSymbols) {
+		long setBytes = 24L + 16L + 8L * ((numNfaStates + 63) >>> 6);
+		return 4L * numSymbols + setBytes + 8L + 1L + 48L;
+	}
+}
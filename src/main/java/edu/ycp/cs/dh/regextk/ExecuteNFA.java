@@ -28,11 +28,34 @@ package edu.ycp.cs.dh.regextk;
  * nondeterministic finite automata.
  */
 public class ExecuteNFA implements ExecuteFiniteAutomaton {
-	private FiniteAutomaton fa;
+	private boolean removeEpsilonTransitions;
+	private CompactAutomaton fa;
+	
+	/**
+	 * Constructor.  The automaton is simulated as-is.
+	 */
+	public ExecuteNFA() {
+		this(false);
+	}
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param removeEpsilonTransitions true if epsilon transitions should be removed
+	 *                                 from the automaton (using {@link RemoveEpsilonTransitions})
+	 *                                 before it is simulated, so that no epsilon closures
+	 *                                 need to be computed for each input symbol
+	 */
+	public ExecuteNFA(boolean removeEpsilonTransitions) {
+		this.removeEpsilonTransitions = removeEpsilonTransitions;
+	}
 	
 	@Override
 	public void setAutomaton(FiniteAutomaton fa) {
-		this.fa = fa;
+		if (removeEpsilonTransitions) {
+			fa = FiniteAutomatonUtil.removeEpsilonTransitions(fa);
+		}
+		this.fa = new CompactAutomaton(fa);
 	}
 	
 	@Override
@@ -53,6 +76,6 @@ public class ExecuteNFA implements ExecuteFiniteAutomaton {
 
 		// if we ended up in a set of States that has at least
 		// one accepting state, then the string is accepted
-		return FiniteAutomatonUtil.containsAcceptingState(current) ? Answer.ACCEPT : Answer.REJECT;
+		return FiniteAutomatonUtil.containsAcceptingState(fa, current) ? Answer.ACCEPT : Answer.REJECT;
 	}
 }
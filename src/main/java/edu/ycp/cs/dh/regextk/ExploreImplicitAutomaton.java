@@ -0,0 +1,379 @@
+// RegexToolkit - A Java library for regular expressions and finite automata
+// Copyright (C) 2013, David H. Hovemeyer <david.hovemeyer@gmail.com>
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+// 
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+// IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+// CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+// TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+// SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package edu.ycp.cs.dh.regextk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Explore an {@link ImplicitAutomaton} breadth-first from its start state,
+ * only as far as needed.  Checking whether the automaton recognizes the
+ * empty language stops as soon as an accepting state is found, so
+ * if the language is not empty, usually only a small part of the
+ * automaton is visited.  The explored part of the automaton is
+ * remembered, so later queries continue where earlier ones stopped.
+ * 
+ * @param <S> the type of states
+ */
+public class ExploreImplicitAutomaton<S> {
+	private ImplicitAutomaton<S> automaton;
+	private char[] alphabet;
+
+	// states, numbered in the order they are found: states are expanded in
+	// the same order, and the successors of state i are
+	// edgeTargets[edgeStart[i]] .. edgeTargets[edgeStart[i+1]-1]
+	private Map<S, Integer> stateIds;
+	private List<S> states;
+	private boolean[] accepting;
+	private int[] depth;
+	private int[] parent;
+	private char[] parentSymbol;
+	private int[] edgeStart;
+	private int[] edgeTargets;
+	private char[] edgeSymbols;
+	private int numEdges;
+	private int numExpanded;
+	private int firstAccepting;
+
+	// strings found by getWitnesses: each is the state it leads to,
+	// and the string it extends by one symbol (-1 for the empty string)
+	private int[] itemState;
+	private int[] itemParent;
+	private char[] itemSymbol;
+	private int[] itemLength;
+	private int numItems;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param automaton the ImplicitAutomaton to explore
+	 */
+	public ExploreImplicitAutomaton(ImplicitAutomaton<S> automaton) {
+		this.automaton = automaton;
+		this.alphabet = automaton.getAlphabet();
+		this.stateIds = new HashMap<S, Integer>();
+		this.states = new ArrayList<S>();
+		this.accepting = new boolean[16];
+		this.depth = new int[16];
+		this.parent = new int[16];
+		this.parentSymbol = new char[16];
+		this.edgeStart = new int[17];
+		this.edgeTargets = new int[16];
+		this.edgeSymbols = new char[16];
+		this.firstAccepting = -1;
+
+		getStateId(automaton.getStartState(), -1, FiniteAutomaton.EPSILON);
+	}
+
+	/**
+	 * Determine whether the automaton recognizes the empty language.
+	 * 
+	 * @return true if the language is empty, false otherwise
+	 */
+	public boolean isEmpty() {
+		while (firstAccepting < 0 && numExpanded < states.size()) {
+			expand(numExpanded++);
+		}
+		return firstAccepting < 0;
+	}
+
+	/**
+	 * Get a shortest string accepted by the automaton.
+	 * 
+	 * @return a shortest accepted string, or null if the language is empty
+	 */
+	public String getWitness() {
+		if (isEmpty()) {
+			return null;
+		}
+		StringBuilder buf = new StringBuilder();
+		for (int s = firstAccepting; parent[s] >= 0; s = parent[s]) {
+			buf.append(parentSymbol[s]);
+		}
+		return buf.reverse().toString();
+	}
+
+	/**
+	 * Get some strings accepted by the automaton.  Shorter strings are
+	 * found first, so the first string is a shortest one.  The automaton
+	 * is explored only as deep as needed: if the strings found have length
+	 * at most n, only states reachable by strings of length at most about
+	 * 2n are visited (unless the automaton is smaller.)
+	 * 
+	 * @param maxStrings the maximum number of strings to find
+	 * @return list of accepted strings
+	 */
+	public List<String> getWitnesses(int maxStrings) {
+		List<String> result = new ArrayList<String>();
+		if (maxStrings <= 0 || isEmpty()) {
+			return result;
+		}
+		if (maxStrings == 1) {
+			result.add(getWitness());
+			return result;
+		}
+
+		// find the strings of length at most maxLength, doubling
+		// maxLength until there are enough of them (or the whole
+		// automaton has been explored, so that there are no more)
+		int maxLength = Math.max(depth[firstAccepting], 1);
+		while (true) {
+			boolean complete = exploreToDepth(maxLength);
+			if (complete) {
+				maxLength = Integer.MAX_VALUE;
+			}
+			getWitnesses(maxStrings, maxLength, result);
+			if (result.size() == maxStrings || complete) {
+				return result;
+			}
+			result.clear();
+			maxLength = maxLength > Integer.MAX_VALUE / 2 ? Integer.MAX_VALUE : 2 * maxLength;
+		}
+	}
+
+	// Find (up to maxStrings) accepted strings of length at most maxLength,
+	// shortest first.  All states reachable by strings shorter than
+	// maxLength must have been expanded.
+	private void getWitnesses(int maxStrings, int maxLength, List<String> result) {
+		final int[] distance = findDistances();
+
+		// best-first search over strings (the automaton is deterministic,
+		// so each string leads to a single state), ordered by the length
+		// of the shortest accepted string extending them.  Ties are broken
+		// in favor of the string found last, so a string is followed by
+		// an extension that keeps its priority, and an accepted string is
+		// reached at most maxLength steps after any string whose priority
+		// is as low as possible.  Each string is represented by its state,
+		// and the string it extends by one symbol.
+		itemState = new int[16];
+		itemParent = new int[16];
+		itemSymbol = new char[16];
+		itemLength = new int[16];
+		numItems = 0;
+		PriorityQueue<Integer> workList = new PriorityQueue<Integer>(16, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				long p1 = (long) itemLength[o1] + distance[itemState[o1]];
+				long p2 = (long) itemLength[o2] + distance[itemState[o2]];
+				if (p1 != p2) {
+					return p1 < p2 ? -1 : 1;
+				}
+				return o2.compareTo(o1);
+			}
+		});
+		if (distance[0] != Integer.MAX_VALUE && distance[0] <= maxLength) {
+			workList.add(addItem(0, -1, FiniteAutomaton.EPSILON, 0));
+		}
+		while (!workList.isEmpty() && result.size() < maxStrings) {
+			int item = workList.remove();
+			int state = itemState[item];
+			if (accepting[state]) {
+				result.add(getString(item));
+			}
+			if (state >= numExpanded) {
+				continue;
+			}
+
+			// add the extensions in reverse, so that they are
+			// removed from the work list in alphabetical order
+			long length = itemLength[item] + 1;
+			for (int e = edgeStart[state + 1] - 1; e >= edgeStart[state]; e--) {
+				int target = edgeTargets[e];
+				if (distance[target] != Integer.MAX_VALUE && length + distance[target] <= maxLength) {
+					workList.add(addItem(target, item, edgeSymbols[e], (int) length));
+				}
+			}
+		}
+
+		itemState = null;
+		itemParent = null;
+		itemSymbol = null;
+		itemLength = null;
+	}
+
+	private int addItem(int state, int parent, char symbol, int length) {
+		if (numItems == itemState.length) {
+			int capacity = 2 * numItems;
+			itemState = Arrays.copyOf(itemState, capacity);
+			itemParent = Arrays.copyOf(itemParent, capacity);
+			itemSymbol = Arrays.copyOf(itemSymbol, capacity);
+			itemLength = Arrays.copyOf(itemLength, capacity);
+		}
+		itemState[numItems] = state;
+		itemParent[numItems] = parent;
+		itemSymbol[numItems] = symbol;
+		itemLength[numItems] = length;
+		return numItems++;
+	}
+
+	private String getString(int item) {
+		char[] buf = new char[itemLength[item]];
+		for (int i = item; itemParent[i] >= 0; i = itemParent[i]) {
+			buf[itemLength[i] - 1] = itemSymbol[i];
+		}
+		return new String(buf);
+	}
+
+	/**
+	 * Explore the entire (reachable part of the) automaton, and
+	 * build an equivalent deterministic FiniteAutomaton.
+	 * 
+	 * @return the FiniteAutomaton
+	 */
+	public FiniteAutomaton toFiniteAutomaton() {
+		exploreAll();
+		FiniteAutomaton result = new FiniteAutomaton();
+		int n = states.size();
+		State[] resultStates = new State[n];
+		for (int s = 0; s < n; s++) {
+			resultStates[s] = result.createState();
+			resultStates[s].setStart(s == 0);
+			resultStates[s].setAccepting(accepting[s]);
+		}
+		for (int s = 0; s < n; s++) {
+			for (int e = edgeStart[s]; e < edgeStart[s + 1]; e++) {
+				result.createTransition(resultStates[s], resultStates[edgeTargets[e]], edgeSymbols[e]);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return the number of states found so far
+	 */
+	public int getNumStates() {
+		return states.size();
+	}
+
+	private void exploreAll() {
+		while (numExpanded < states.size()) {
+			expand(numExpanded++);
+		}
+	}
+
+	// Expand the states reachable by strings shorter than given length.
+	// Return true if the whole automaton has been explored.
+	private boolean exploreToDepth(int length) {
+		while (numExpanded < states.size() && depth[numExpanded] < length) {
+			expand(numExpanded++);
+		}
+		return numExpanded == states.size();
+	}
+
+	private void expand(int s) {
+		S state = states.get(s);
+		for (char c : alphabet) {
+			S next = automaton.getSuccessor(state, c);
+			if (next == null) {
+				continue;
+			}
+			int target = getStateId(next, s, c);
+			if (numEdges == edgeTargets.length) {
+				edgeTargets = Arrays.copyOf(edgeTargets, 2 * numEdges);
+				edgeSymbols = Arrays.copyOf(edgeSymbols, 2 * numEdges);
+			}
+			edgeTargets[numEdges] = target;
+			edgeSymbols[numEdges] = c;
+			numEdges++;
+		}
+		edgeStart[s + 1] = numEdges;
+	}
+
+	private int getStateId(S state, int from, char c) {
+		Integer id = stateIds.get(state);
+		if (id != null) {
+			return id;
+		}
+
+		int s = states.size();
+		if (s == accepting.length) {
+			int capacity = 2 * s;
+			accepting = Arrays.copyOf(accepting, capacity);
+			depth = Arrays.copyOf(depth, capacity);
+			parent = Arrays.copyOf(parent, capacity);
+			parentSymbol = Arrays.copyOf(parentSymbol, capacity);
+			edgeStart = Arrays.copyOf(edgeStart, capacity + 1);
+		}
+		states.add(state);
+		stateIds.put(state, s);
+		accepting[s] = automaton.isAccepting(state);
+		depth[s] = from >= 0 ? depth[from] + 1 : 0;
+		parent[s] = from;
+		parentSymbol[s] = c;
+
+		// states are found in breadth-first order, so the first
+		// accepting state found is reached by a shortest string
+		if (accepting[s] && firstAccepting < 0) {
+			firstAccepting = s;
+		}
+		return s;
+	}
+
+	// Find the length of a shortest path from each state found so far
+	// to an accepting state, using only the transitions out of expanded
+	// states (Integer.MAX_VALUE if there is no such path).
+	private int[] findDistances() {
+		int n = states.size();
+		int[] predStart = new int[n + 1];
+		for (int e = 0; e < numEdges; e++) {
+			predStart[edgeTargets[e] + 1]++;
+		}
+		for (int s = 0; s < n; s++) {
+			predStart[s + 1] += predStart[s];
+		}
+		int[] pred = new int[numEdges];
+		int[] fill = Arrays.copyOf(predStart, n);
+		for (int s = 0; s < numExpanded; s++) {
+			for (int e = edgeStart[s]; e < edgeStart[s + 1]; e++) {
+				pred[fill[edgeTargets[e]]++] = s;
+			}
+		}
+
+		// breadth-first search backwards from the accepting states
+		int[] distance = new int[n];
+		Arrays.fill(distance, Integer.MAX_VALUE);
+		int[] workList = new int[n];
+		int head = 0, tail = 0;
+		for (int s = 0; s < n; s++) {
+			if (accepting[s]) {
+				distance[s] = 0;
+				workList[tail++] = s;
+			}
+		}
+		while (head < tail) {
+			int t = workList[head++];
+			for (int i = predStart[t]; i < predStart[t + 1]; i++) {
+				if (distance[pred[i]] == Integer.MAX_VALUE) {
+					distance[pred[i]] = distance[t] + 1;
+					workList[tail++] = pred[i];
+				}
+			}
+		}
+		return distance;
+	}
+}
@@ -0,0 +1,362 @@
+// RegexToolkit - A Java library for regular expressions and finite automata
+// Copyright (C) 2013, David H. Hovemeyer <david.hovemeyer@gmail.com>
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+// 
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+// IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+// CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+// TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+// SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+
+package edu.ycp.cs.dh.regextk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Find the substrings of a text that are accepted by a FiniteAutomaton,
+ * with leftmost-longest semantics: the match starting at the lowest
+ * position is found, and of the matches starting there, the longest one.
+ * Further matches are found starting at the end of the previous match
+ * (or one position later, if the previous match was empty.)
+ * 
+ * No backtracking is done.  Instead, two DFAs are built by the subset
+ * construction.  For an automaton recognizing language L, the reverse DFA
+ * recognizes the reversal of L, preceded by any string; scanning the text
+ * backwards from the end with the reverse DFA, it is in an accepting state
+ * at every position where some match starts.  Its state at a position is
+ * also the set of states of the automaton from which the rest of the text
+ * has a prefix leading to an accepting state.  The forward DFA recognizes
+ * L, and is run from a match's start to find its end: the last position at
+ * which it is in an accepting state.  The forward scan stops as soon as the
+ * set of states of the automaton it has reached and the set recorded by the
+ * backward scan at that position are disjoint, since then no longer match
+ * is possible, so it reads only one symbol past the end of the match.
+ * 
+ * So, finding all of the matches takes one backward scan of the text
+ * (shared by all of the matches found by {@link #findAll(CharSequence)}
+ * or {@link #iterator(CharSequence)}), plus forward scans whose total
+ * length is at most the length of the text plus the number of matches:
+ * linear time in the length of the text.
+ */
+public class FindMatches {
+	/**
+	 * A match: the substring of the text from the start
+	 * position (inclusive) to the end position (exclusive).
+	 */
+	public static class Match {
+		private final int start;
+		private final int end;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param start the start position (inclusive)
+		 * @param end   the end position (exclusive)
+		 */
+		public Match(int start, int end) {
+			this.start = start;
+			this.end = end;
+		}
+
+		/**
+		 * @return the start position (inclusive)
+		 */
+		public int getStart() {
+			return start;
+		}
+
+		/**
+		 * @return the end position (exclusive)
+		 */
+		public int getEnd() {
+			return end;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == null || obj.getClass() != this.getClass()) {
+				return false;
+			}
+			Match other = (Match) obj;
+			return start == other.start && end == other.end;
+		}
+
+		@Override
+		public int hashCode() {
+			return start * 31 + end;
+		}
+
+		@Override
+		public String toString() {
+			return "[" + start + "," + end + ")";
+		}
+	}
+
+	// A DFA stored as a transition table: next[s*alphabet.length+a]
+	// is the state reached from state s on alphabet[a], or -1 if
+	// there is no transition, and nfaStates[s] is the set of states
+	// of the NFA represented by state s.
+	private static class Table {
+		private final int[] next;
+		private final boolean[] accepting;
+		private final int startState;
+		private final StateSet[] nfaStates;
+
+		public Table(ConvertNFAToDFA converter, char[] alphabet, int[] symbolIndex, int minCC) {
+			FiniteAutomaton dfa = converter.execute(FiniteAutomatonTransformerMode.NONDESTRUCTIVE);
+			nfaStates = converter.getNFAStateSets();
+			next = new int[dfa.getNumStates() * alphabet.length];
+			Arrays.fill(next, -1);
+			for (Transition t : dfa.getAllTransitions()) {
+				next[t.getFromState().getNumber() * alphabet.length + symbolIndex[t.getSymbol() - minCC]] = t.getToState().getNumber();
+			}
+			accepting = new boolean[dfa.getNumStates()];
+			for (State s : dfa.getStates()) {
+				accepting[s.getNumber()] = s.isAccepting();
+			}
+			startState = dfa.getStartState().getNumber();
+		}
+	}
+
+	private char[] alphabet;
+	private int minCC;
+	private int[] symbolIndex;
+	private Table forward;
+	private Table reverse;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param regexp a regular expression
+	 */
+	public FindMatches(String regexp) {
+		this(FiniteAutomatonUtil.convertToNFA(regexp));
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param fa a FiniteAutomaton (deterministic or nondeterministic)
+	 */
+	public FindMatches(FiniteAutomaton fa) {
+		Set<Character> symbols = FiniteAutomatonUtil.getAlphabet(fa);
+		alphabet = new char[symbols.size()];
+		int n = 0;
+		for (char c : symbols) {
+			alphabet[n++] = c;
+		}
+
+		// map character codes to indices in the alphabet
+		if (alphabet.length == 0) {
+			minCC = 0;
+			symbolIndex = new int[0];
+		} else {
+			minCC = alphabet[0];
+			symbolIndex = new int[alphabet[alphabet.length - 1] + 1 - minCC];
+			Arrays.fill(symbolIndex, -1);
+			for (int a = 0; a < alphabet.length; a++) {
+				symbolIndex[alphabet[a] - minCC] = a;
+			}
+		}
+
+		// neither DFA is minimized, since the sets of states of
+		// the automaton that their states represent are needed
+		ConvertNFAToDFA forwardConverter = new ConvertNFAToDFA();
+		forwardConverter.add(fa);
+		forward = new Table(forwardConverter, alphabet, symbolIndex, minCC);
+
+		// the reverse automaton, preceded by any string: the new start state
+		// has a transition to itself on every symbol (symbols not in the
+		// alphabet lead back to the start state when the table is used).
+		// The states of fa keep their numbers in the reverse automaton.
+		FiniteAutomaton reversed = FiniteAutomatonUtil.reverse(fa);
+		State oldStart = reversed.getStartState();
+		State start = reversed.createState();
+		oldStart.setStart(false);
+		start.setStart(true);
+		for (char c : alphabet) {
+			reversed.createTransition(start, start, c);
+		}
+		reversed.createTransition(start, oldStart, FiniteAutomaton.EPSILON);
+		ConvertNFAToDFA reverseConverter = new ConvertNFAToDFA();
+		reverseConverter.add(reversed);
+		reverse = new Table(reverseConverter, alphabet, symbolIndex, minCC);
+	}
+
+	/**
+	 * Find the first (leftmost-longest) match in a text.
+	 * 
+	 * @param text the text
+	 * @return the first match, or null if there is no match
+	 */
+	public Match find(CharSequence text) {
+		return find(text, 0);
+	}
+
+	/**
+	 * Find the first (leftmost-longest) match in a text
+	 * starting at or after given position.  This scans the text
+	 * from the end back to the given position, so to find successive
+	 * matches, use {@link #iterator(CharSequence)} or
+	 * {@link #findAll(CharSequence)}, which scan it only once.
+	 * 
+	 * @param text the text
+	 * @param from the position to start searching at
+	 * @return the first match, or null if there is no match
+	 */
+	public Match find(CharSequence text, int from) {
+		Iterator<Match> i = new MatchIterator(text, from);
+		return i.hasNext() ? i.next() : null;
+	}
+
+	/**
+	 * Find all (leftmost-longest) matches in a text.
+	 * 
+	 * @param text the text
+	 * @return list of the matches, in order
+	 */
+	public List<Match> findAll(CharSequence text) {
+		List<Match> result = new ArrayList<Match>();
+		for (Iterator<Match> i = iterator(text); i.hasNext(); ) {
+			result.add(i.next());
+		}
+		return result;
+	}
+
+	/**
+	 * Get an Iterator over the (leftmost-longest) matches in a text.
+	 * Matches are found as the Iterator is used, after a single
+	 * backward scan of the text.  The text must not change while the
+	 * Iterator is being used.
+	 * 
+	 * @param text the text
+	 * @return Iterator returning the matches, in order
+	 */
+	public Iterator<Match> iterator(CharSequence text) {
+		return new MatchIterator(text, 0);
+	}
+
+	// Iterator over the matches in a text, starting at or after
+	// a given position.
+	private class MatchIterator implements Iterator<Match> {
+		private final CharSequence text;
+		private final int from;
+		private final int[] reverseStates;
+		private int pos;
+		private Match nextMatch;
+
+		public MatchIterator(CharSequence text, int from) {
+			this.text = text;
+			this.from = from;
+			this.reverseStates = scanBackwards(text, from);
+			this.pos = from;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (nextMatch == null) {
+				boolean[] accepting = reverse.accepting;
+				while (pos <= text.length() && !accepting[reverseStates[pos - from]]) {
+					pos++;
+				}
+				if (pos <= text.length()) {
+					int end = findMatchEnd(text, pos, reverseStates, from);
+					nextMatch = new Match(pos, end);
+					pos = end > pos ? end : pos + 1;
+				}
+			}
+			return nextMatch != null;
+		}
+
+		@Override
+		public Match next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Match result = nextMatch;
+			nextMatch = null;
+			return result;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	// Scan the text backwards with the reverse DFA, recording its state
+	// at each position (relative to from.)  Matches start at the positions
+	// where the state is accepting.
+	private int[] scanBackwards(CharSequence text, int from) {
+		if (from < 0 || from > text.length()) {
+			throw new IndexOutOfBoundsException("Invalid start position " + from);
+		}
+		int k = alphabet.length;
+		int[] next = reverse.next;
+		int start = reverse.startState;
+
+		int[] result = new int[text.length() - from + 1];
+		int state = start;
+		result[text.length() - from] = state;
+		for (int i = text.length() - 1; i >= from; i--) {
+			int a = index(text.charAt(i));
+			state = a < 0 ? start : next[state * k + a];
+			if (state < 0) {
+				// can't happen, since the start state is always included
+				state = start;
+			}
+			result[i - from] = state;
+		}
+		return result;
+	}
+
+	// Find the end of the longest match starting at given position
+	// (where it is known that a match starts), using the states
+	// recorded by the backward scan to stop as soon as no longer
+	// match is possible.
+	private int findMatchEnd(CharSequence text, int start, int[] reverseStates, int from) {
+		int k = alphabet.length;
+		int[] next = forward.next;
+		boolean[] accepting = forward.accepting;
+
+		int state = forward.startState;
+		int end = start;
+		for (int i = start; i < text.length(); i++) {
+			int a = index(text.charAt(i));
+			if (a < 0) {
+				break;
+			}
+			state = next[state * k + a];
+			if (state < 0 || !forward.nfaStates[state].intersects(reverse.nfaStates[reverseStates[i + 1 - from]])) {
+				break;
+			}
+			if (accepting[state]) {
+				end = i + 1;
+			}
+		}
+		return end;
+	}
+
+	private int index(char c) {
+		int i = c - minCC;
+		return i >= 0 && i < symbolIndex.length ? symbolIndex[i] : -1;
+	}
+}
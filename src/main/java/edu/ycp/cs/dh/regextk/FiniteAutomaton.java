@@ -23,14 +23,20 @@
 package edu.ycp.cs.dh.regextk;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
 
 /**
  * Represents a finite automaton (deterministic or nondeterministic).
+ * 
+ * Cloning is copy-on-write: a clone gets its own States, but shares an
+ * immutable snapshot of the transitions of the original automaton, and
+ * only creates Transition objects for them when they are needed.
+ * For example, adding a Transition out of one State of a clone only
+ * requires the Transitions out of that State to be created.  The snapshot
+ * is kept (and shared by further clones) until the automaton is modified.
  */
 public class FiniteAutomaton implements Cloneable {
 	/**
@@ -38,17 +44,70 @@ public class FiniteAutomaton implements Cloneable {
 	 */
 	public static final char EPSILON = 'ε';
 
+	/**
+	 * Immutable record of the transitions of a FiniteAutomaton,
+	 * in order of creation.
+	 */
+	private static class Snapshot {
+		private final int numStates;
+		private final int[] from;
+		private final int[] to;
+		private final char[] symbols;
+
+		// transitions out of state s are (in order of creation)
+		// indices[offsets[s]] .. indices[offsets[s+1]-1]
+		private final int[] offsets;
+		private final int[] indices;
+
+		public Snapshot(List<State> stateList, List<Transition> transitionList) {
+			numStates = stateList.size();
+			int numTransitions = transitionList.size();
+			from = new int[numTransitions];
+			to = new int[numTransitions];
+			symbols = new char[numTransitions];
+			offsets = new int[numStates + 1];
+			int i = 0;
+			for (Transition t : transitionList) {
+				from[i] = t.getFromState().getNumber();
+				to[i] = t.getToState().getNumber();
+				symbols[i] = t.getSymbol();
+				offsets[from[i] + 1]++;
+				i++;
+			}
+			for (int s = 0; s < numStates; s++) {
+				offsets[s + 1] += offsets[s];
+			}
+			indices = new int[numTransitions];
+			int[] fill = Arrays.copyOf(offsets, numStates);
+			for (i = 0; i < numTransitions; i++) {
+				indices[fill[from[i]]++] = i;
+			}
+		}
+	}
+
 	private List<State> stateList;
 	private List<Transition> transitionList;
-	private Map<Integer, List<Transition>> stateToTransitionListMap;
+	private List<List<Transition>> stateTransitionLists;
+	private ClosureIndex closureIndex;
+
+	// snapshot of this automaton's transitions, if it hasn't been modified
+	// since the snapshot was made
+	private Snapshot snapshot;
+
+	// snapshot shared with the automaton this one was cloned from, if its
+	// Transitions have not all been created yet: in that case, transitionList
+	// contains only the Transitions added since, and the transition list of
+	// a State is null until the State's Transitions are created
+	private Snapshot base;
+	private Transition[] baseTransitions;
 	
 	/**
 	 * Constructor.
 	 */
 	public FiniteAutomaton() {
-		stateList = new LinkedList<State>();
-		transitionList = new LinkedList<Transition>();
-		stateToTransitionListMap = new TreeMap<Integer, List<Transition>>();
+		stateList = new ArrayList<State>();
+		transitionList = new ArrayList<Transition>();
+		stateTransitionLists = new ArrayList<List<Transition>>();
 	}
 	
 	/**
@@ -59,8 +118,9 @@ public class FiniteAutomaton implements Cloneable {
 	 */
 	public State createState() {
 		State s = new State(stateList.size());
+		modified();
 		stateList.add(s);
-		stateToTransitionListMap.put(s.getNumber(), new ArrayList<Transition>());
+		stateTransitionLists.add(new ArrayList<Transition>());
 		return s;
 	}
 	
@@ -76,10 +136,65 @@ public class FiniteAutomaton implements Cloneable {
 	 */
 	public Transition createTransition(State fromState, State toState, char symbol) {
 		Transition t = new Transition(fromState, toState, symbol);
+		modified();
 		transitionList.add(t);
-		stateToTransitionListMap.get(fromState.getNumber()).add(t);
+		getTransitionList(fromState.getNumber()).add(t);
+		return t;
+	}
+
+	private void modified() {
+		closureIndex = null;
+		snapshot = null;
+	}
+
+	// Get the (modifiable) list of Transitions out of given State,
+	// creating the Transitions shared with the original automaton if necessary.
+	private List<Transition> getTransitionList(int s) {
+		List<Transition> list = stateTransitionLists.get(s);
+		if (list == null) {
+			list = new ArrayList<Transition>(base.offsets[s + 1] - base.offsets[s]);
+			for (int k = base.offsets[s]; k < base.offsets[s + 1]; k++) {
+				list.add(getBaseTransition(base.indices[k]));
+			}
+			stateTransitionLists.set(s, list);
+		}
+		return list;
+	}
+
+	private Transition getBaseTransition(int i) {
+		Transition t = baseTransitions[i];
+		if (t == null) {
+			t = new Transition(stateList.get(base.from[i]), stateList.get(base.to[i]), base.symbols[i]);
+			baseTransitions[i] = t;
+		}
 		return t;
 	}
+
+	// Create all of the Transitions shared with the original automaton.
+	private void createBaseTransitions() {
+		if (base == null) {
+			return;
+		}
+		for (int s = 0; s < base.numStates; s++) {
+			getTransitionList(s);
+		}
+		List<Transition> all = new ArrayList<Transition>(base.from.length + transitionList.size());
+		for (int i = 0; i < base.from.length; i++) {
+			all.add(getBaseTransition(i));
+		}
+		all.addAll(transitionList);
+		transitionList = all;
+		base = null;
+		baseTransitions = null;
+	}
+
+	private Snapshot getSnapshot() {
+		if (snapshot == null) {
+			createBaseTransitions();
+			snapshot = new Snapshot(stateList, transitionList);
+		}
+		return snapshot;
+	}
 	
 	/**
 	 * Get the start State of the FiniteAutomaton.
@@ -128,23 +243,35 @@ public class FiniteAutomaton implements Cloneable {
 	 *              will be added to this FiniteAutomaton
 	 */
 	public void addAll(FiniteAutomaton other) {
+		modified();
+		other.createBaseTransitions();
+		other.modified();
 		other.addToStateNumbers(stateList.size());
 		stateList.addAll(other.stateList);
 		transitionList.addAll(other.transitionList);
-		stateToTransitionListMap.putAll(other.stateToTransitionListMap);
+		stateTransitionLists.addAll(other.stateTransitionLists);
 	}
 	
 	private void addToStateNumbers(int add) {
+		// the transition lists are indexed by position, so
+		// they are still correct after renumbering
 		for (State s : stateList) {
 			s.addToNumber(add);
 		}
-		
-		// Fix stateToTransitionListMap, since the states have been renumbered
-		TreeMap<Integer, List<Transition>> update = new TreeMap<Integer, List<Transition>>();
-		for (Map.Entry<Integer, List<Transition>> entry : stateToTransitionListMap.entrySet()) {
-			update.put(entry.getKey() + add, entry.getValue());
+	}
+
+	/**
+	 * Get the {@link ClosureIndex} recording the epsilon closure of each State.
+	 * It is built the first time it is needed, and rebuilt after States
+	 * or Transitions are added.
+	 * 
+	 * @return the ClosureIndex
+	 */
+	public ClosureIndex getClosureIndex() {
+		if (closureIndex == null) {
+			closureIndex = new ClosureIndex(this);
 		}
-		stateToTransitionListMap = update;
+		return closureIndex;
 	}
 
 	/**
@@ -154,7 +281,7 @@ public class FiniteAutomaton implements Cloneable {
 	 * @return  List of all transitions out of the State
 	 */
 	public List<Transition> getTransitions(State s) {
-		return Collections.unmodifiableList(stateToTransitionListMap.get(s.getNumber()));
+		return Collections.unmodifiableList(getTransitionList(s.getNumber()));
 	}
 	
 	/**
@@ -175,6 +302,16 @@ public class FiniteAutomaton implements Cloneable {
 		return null;
 	}
 
+	/**
+	 * Get the State with given state number.
+	 * 
+	 * @param number a state number
+	 * @return the State with that number
+	 */
+	public State getState(int number) {
+		return stateList.get(number);
+	}
+
 	/**
 	 * Get a List of all States in the FiniteAutomaton.
 	 * 
@@ -190,6 +327,7 @@ public class FiniteAutomaton implements Cloneable {
 	 * @return List of all Transitions in the FiniteAutomaton
 	 */
 	public List<Transition> getAllTransitions() {
+		createBaseTransitions();
 		return Collections.unmodifiableList(transitionList);
 	}
 
@@ -212,21 +350,22 @@ public class FiniteAutomaton implements Cloneable {
 		}
 		
 		// create duplicate states
-		Map<State, State> stateMap = new TreeMap<State, State>();
+		int n = stateList.size();
+		dup.stateList = new ArrayList<State>(n);
+		dup.stateTransitionLists = new ArrayList<List<Transition>>(n);
 		for (State origState : this.stateList) {
-			State dupState = dup.createState();
+			State dupState = new State(dup.stateList.size());
 			dupState.setStart(origState.isStart());
 			dupState.setAccepting(origState.isAccepting());
-			
-			stateMap.put(origState, dupState);
+			dup.stateList.add(dupState);
+			dup.stateTransitionLists.add(null);
 		}
 		
-		// create duplicate transitions
-		for (Transition origTransition : this.transitionList) {
-			State newFrom = stateMap.get(origTransition.getFromState());
-			State newTo = stateMap.get(origTransition.getToState());
-			dup.createTransition(newFrom, newTo, origTransition.getSymbol());
-		}
+		// share the transitions: duplicates are created on demand
+		Snapshot shared = getSnapshot();
+		dup.snapshot = shared;
+		dup.base = shared;
+		dup.baseTransitions = new Transition[shared.from.length];
 		
 		return dup;
 	}
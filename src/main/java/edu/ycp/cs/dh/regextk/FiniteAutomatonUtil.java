@@ -53,9 +53,9 @@ public abstract class FiniteAutomatonUtil {
 	 * @return Set of States directly reached by consuming the input symbol 
 	 */
 	public static StateSet followAll(FiniteAutomaton fa, StateSet current, char c) {
-		StateSet result = new StateSet();
-		for (State s : current.getStates()) {
-			for (Transition t : fa.getTransitions(s)) {
+		StateSet result = new StateSet(fa.getNumStates());
+		for (int s = current.nextState(0); s >= 0; s = current.nextState(s + 1)) {
+			for (Transition t : fa.getTransitions(fa.getState(s))) {
 				if (t.getSymbol() == c) {
 					result.add(t.getToState());
 				}
@@ -64,43 +64,61 @@ public abstract class FiniteAutomatonUtil {
 		return result;
 	}
 
+	/**
+	 * Compute set of States directly reached by following transitions
+	 * from given current set of States on given input symbol,
+	 * using a {@link CompactAutomaton}.
+	 * 
+	 * @param ca      a CompactAutomaton
+	 * @param current set of States
+	 * @param c       input symbol
+	 * @return Set of States directly reached by consuming the input symbol
+	 */
+	public static StateSet followAll(CompactAutomaton ca, StateSet current, char c) {
+		StateSet result = new StateSet(ca.getNumStates());
+		for (int s = current.nextState(0); s >= 0; s = current.nextState(s + 1)) {
+			int end = ca.getTransitionEnd(s);
+			for (int i = ca.findTransition(s, c); i < end && ca.getSymbol(i) == c; i++) {
+				result.add(ca.getTarget(i));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Compute the closure of given set of States by following
+	 * epsilon transitions, using a {@link CompactAutomaton}.
+	 * 
+	 * @param ca      a CompactAutomaton
+	 * @param current set of States
+	 * @return        the closure of the set of States
+	 */
+	public static StateSet closure(CompactAutomaton ca, StateSet current) {
+		return ca.getClosureIndex().closure(current);
+	}
+
 	/**
 	 * Compute the closure of given set of States by following
 	 * epsilon transitions.
 	 * 
-	 * @param fa      an FiniteAutomaton
+	 * @param fa      a FiniteAutomaton
 	 * @param current set of States
 	 * @return        the closure of the set of States
 	 */
 	public static StateSet closure(FiniteAutomaton fa, StateSet current) {
-		StateSet result = new StateSet();
-		LinkedList<State> work = new LinkedList<State>(current.getStates());
-		
-		while (!work.isEmpty()) {
-			State s = work.removeFirst();
-			result.add(s);
-			List<Transition> transitions = fa.getTransitions(s);
-			for (Transition t : transitions) {
-				if (t.getSymbol() == FiniteAutomaton.EPSILON) {
-					if (result.add(t.getToState())) {
-						work.add(t.getToState());
-					}
-				}
-			}
-		}
-		
-		return result;
+		return fa.getClosureIndex().closure(current);
 	}
 
 	/**
 	 * Return true if the given set of States contains an accepting
 	 * state, false otherwise.
 	 * 
+	 * @param fa      the FiniteAutomaton the States belong to
 	 * @param current a set of States
 	 * @return true if set of States contains an accepting state, false otherwise
 	 */
-	public static boolean containsAcceptingState(StateSet current) {
-		for (State s : current.getStates()) {
+	public static boolean containsAcceptingState(FiniteAutomaton fa, StateSet current) {
+		for (State s : current.getStates(fa)) {
 			if (s.isAccepting()) {
 				return true;
 			}
@@ -108,6 +126,23 @@ public abstract class FiniteAutomatonUtil {
 		return false;
 	}
 
+	/**
+	 * Return true if the given set of States contains a state that is
+	 * an accepting state in given {@link CompactAutomaton}, false otherwise.
+	 * 
+	 * @param ca      a CompactAutomaton
+	 * @param current a set of States
+	 * @return true if set of States contains an accepting state, false otherwise
+	 */
+	public static boolean containsAcceptingState(CompactAutomaton ca, StateSet current) {
+		for (int s = current.nextState(0); s >= 0; s = current.nextState(s + 1)) {
+			if (ca.isAccepting(s)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Get a Set containing the alphabet of symbols (characters)
 	 * used in transitions in given FiniteAutomaton.
@@ -183,9 +218,34 @@ public abstract class FiniteAutomatonUtil {
 		return convert.convertToNFA();
 	}
 
+	/**
+	 * Convert a regular expression to an nondeterministic FiniteAutomaton
+	 * using given construction.
+	 * 
+	 * @param regexp       a regular expression
+	 * @param construction the {@link NFAConstruction} to use
+	 * @return a FiniteAutomata recognizing the language generated by the regular expression
+	 */
+	public static FiniteAutomaton convertToNFA(String regexp, NFAConstruction construction) {
+		return construction.convertToNFA(regexp);
+	}
+
+	/**
+	 * Convert a regular expression directly to a deterministic FiniteAutomaton,
+	 * without building an NFA, using {@link ConvertRegexpToDFA}.
+	 * 
+	 * @param regexp a regular expression
+	 * @return a DFA recognizing the language generated by the regular expression
+	 */
+	public static FiniteAutomaton convertRegexpToDFA(String regexp) {
+		ConvertRegexpToDFA convert = new ConvertRegexpToDFA(regexp);
+		return convert.convertToDFA();
+	}
+
 	/**
 	 * Return a FiniteAutomaton that recognizes the difference of the
 	 * languages recognized by two input FiniteAutomata.
+	 * The result contains no useless states.
 	 * 
 	 * @param a FiniteAutomaton A
 	 * @param b FiniteAutomaton B
@@ -195,9 +255,62 @@ public abstract class FiniteAutomatonUtil {
 		Difference diff = new Difference();
 		diff.add(a);
 		diff.add(b);
+		diff.setTrim(true);
 		return diff.execute(FiniteAutomatonTransformerMode.NONDESTRUCTIVE);
 	}
 
+	/**
+	 * Return an equivalent FiniteAutomaton containing only the states
+	 * that are reachable from the start state and can reach an
+	 * accepting state.
+	 * 
+	 * @param fa a FiniteAutomaton
+	 * @return the trimmed FiniteAutomaton
+	 */
+	public static FiniteAutomaton trim(FiniteAutomaton fa) {
+		Trim trim = new Trim();
+		trim.add(fa);
+		return trim.execute(FiniteAutomatonTransformerMode.NONDESTRUCTIVE);
+	}
+
+	/**
+	 * Return a FiniteAutomaton recognizing the reversal of the
+	 * language recognized by given FiniteAutomaton.
+	 * 
+	 * @param fa a FiniteAutomaton
+	 * @return a FiniteAutomaton recognizing the reversed strings
+	 */
+	public static FiniteAutomaton reverse(FiniteAutomaton fa) {
+		Reverse reverse = new Reverse();
+		reverse.add(fa);
+		return reverse.execute(FiniteAutomatonTransformerMode.NONDESTRUCTIVE);
+	}
+
+	/**
+	 * Return an equivalent FiniteAutomaton with no epsilon transitions.
+	 * 
+	 * @param fa a FiniteAutomaton
+	 * @return an equivalent FiniteAutomaton with no epsilon transitions
+	 */
+	public static FiniteAutomaton removeEpsilonTransitions(FiniteAutomaton fa) {
+		RemoveEpsilonTransitions remove = new RemoveEpsilonTransitions();
+		remove.add(fa);
+		return remove.execute(FiniteAutomatonTransformerMode.NONDESTRUCTIVE);
+	}
+
+	/**
+	 * Return an equivalent FiniteAutomaton with no epsilon transitions,
+	 * reduced in size using simulation relations.
+	 * 
+	 * @param fa a FiniteAutomaton
+	 * @return an equivalent, reduced FiniteAutomaton
+	 */
+	public static FiniteAutomaton reduceBySimulation(FiniteAutomaton fa) {
+		ReduceBySimulation reduce = new ReduceBySimulation();
+		reduce.add(fa);
+		return reduce.execute(FiniteAutomatonTransformerMode.NONDESTRUCTIVE);
+	}
+
 	/**
 	 * Determine whether given FiniteAutomaton recognizes a non-empty language.
 	 * 
@@ -209,6 +322,17 @@ public abstract class FiniteAutomatonUtil {
 		return r.execute(fa);
 	}
 
+	/**
+	 * Determine whether given {@link ImplicitAutomaton} recognizes a non-empty language.
+	 * 
+	 * @param ia  an ImplicitAutomaton (e.g., {@link Difference#view(FiniteAutomaton, FiniteAutomaton)})
+	 * @return true if the automaton recognizes a non-empty language, false otherwise
+	 */
+	public static <S> boolean recognizesNonEmptyLanguage(ImplicitAutomaton<S> ia) {
+		RecognizesNonEmptyLanguage r = new RecognizesNonEmptyLanguage();
+		return r.execute(ia);
+	}
+
 	/**
 	 * Convert given NFA to DFA.
 	 * 
@@ -220,4 +344,20 @@ public abstract class FiniteAutomatonUtil {
 		converter.add(nfa);
 		return converter.execute(FiniteAutomatonTransformerMode.NONDESTRUCTIVE);
 	}
+
+	/**
+	 * Convert given NFA to DFA, optionally minimizing the result.
+	 * 
+	 * @param nfa      an NFA
+	 * @param minimize true if the result should be the minimal DFA
+	 * @return an equivalent DFA
+	 */
+	public static FiniteAutomaton convertToDFA(FiniteAutomaton nfa, boolean minimize) {
+		if (!minimize) {
+			return convertToDFA(nfa);
+		}
+		MinimizeDFA minimizer = new MinimizeDFA();
+		minimizer.add(nfa);
+		return minimizer.execute(FiniteAutomatonTransformerMode.NONDESTRUCTIVE);
+	}
 }
@@ -23,6 +23,9 @@
 package edu.ycp.cs.dh.regextk;
 
 import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Grade a finite automaton by loading it and a solution
@@ -31,13 +34,16 @@ import java.io.FileInputStream;
  */
 public class GradeFiniteAutomaton {
 	public static void main(String[] args) throws Exception {
-		if (args.length != 2) {
-			System.err.println("Usage: " + GradeFiniteAutomaton.class.getName() + " <student automaton> <solution automaton>");
+		List<String> argList = new ArrayList<String>(Arrays.asList(args));
+		EquivalenceCheckStrategy strategy = Util.removeStrategyOption(argList);
+		
+		if (argList.size() != 2) {
+			System.err.println("Usage: " + GradeFiniteAutomaton.class.getName() + " [" + Util.STRATEGY_OPTION + "<strategy>] <student automaton> <solution automaton>");
 			System.exit(1);
 		}
 		
-		String studentFile = args[0];
-		String solutionFile = args[1];
+		String studentFile = argList.get(0);
+		String solutionFile = argList.get(1);
 		
 		FiniteAutomaton student = null, solution = null;
 		
@@ -58,6 +64,9 @@ public class GradeFiniteAutomaton {
 		}
 		
 		EquivalenceChecker checker = new EquivalenceChecker();
+		if (strategy != null) {
+			checker.setStrategy(strategy);
+		}
 		checker.setUnknown(student);
 		checker.setKnown(solution);
 		checker.execute();
@@ -69,14 +78,12 @@ public class GradeFiniteAutomaton {
 		
 		if (result.isUnder()) {
 			System.out.println("Your automaton rejects some strings in the language:");
-			FiniteAutomaton under = checker.getUnderproduced();
-			Util.printExamples(under, 4);
+			Util.printExamples(checker.getUnderproducedWitnesses(4));
 		}
 		
 		if (result.isOver()) {
 			System.out.println("Your automaton accepts some strings not in the language:");
-			FiniteAutomaton over = checker.getOverproduced();
-			Util.printExamples(over, 4);
+			Util.printExamples(checker.getOverproducedWitnesses(4));
 		}
 	}
 }
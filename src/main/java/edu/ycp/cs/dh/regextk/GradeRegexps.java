@@ -26,21 +26,26 @@ import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 public class GradeRegexps {
 	public static void main(String[] args) throws IOException {
-		if (args.length < 2) {
-			System.err.println("Usage: " + GradeRegexps.class.getName() + " <solution file> <student file> [<prob number>]");
+		List<String> argList = new ArrayList<String>(Arrays.asList(args));
+		EquivalenceCheckStrategy strategy = Util.removeStrategyOption(argList);
+		
+		if (argList.size() < 2) {
+			System.err.println("Usage: " + GradeRegexps.class.getName() + " [" + Util.STRATEGY_OPTION + "<strategy>] <solution file> <student file> [<prob number>]");
 			System.exit(1);
 		}
 		
 		int probNumber = -1;
-		if (args.length >= 3) {
-			probNumber = Integer.parseInt(args[2]);
+		if (argList.size() >= 3) {
+			probNumber = Integer.parseInt(argList.get(2));
 		}
 		
-		String solutionFile = args[0];
-		String studentAnswerFile = args[1];
+		String solutionFile = argList.get(0);
+		String studentAnswerFile = argList.get(1);
 		
 		String[] solutions = readLines(solutionFile);
 		String[] studentAnswers = readLines(studentAnswerFile);
@@ -55,7 +60,7 @@ public class GradeRegexps {
 			}
 			System.out.println("Problem " + (i+1) + ":");
 			System.out.println();
-			DetermineEquivalenceOfRegexps.compareRegexps(solutions[i], studentAnswers[i], "the language", "Your regular expression");
+			DetermineEquivalenceOfRegexps.compareRegexps(solutions[i], studentAnswers[i], "the language", "Your regular expression", strategy);
 			System.out.println();
 		}
 	}
@@ -0,0 +1,67 @@
+// RegexToolkit - A Java library for regular expressions and finite automata
+// Copyright (C) 2013, David H. Hovemeyer <david.hovemeyer@gmail.com>
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+// 
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+// IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+// CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+// TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+// SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package edu.ycp.cs.dh.regextk;
+
+/**
+ * A deterministic automaton whose states and transitions are computed
+ * on demand, rather than stored.  Implementations are typically views
+ * of other automata (see {@link DeterminizedView}, {@link ComplementView},
+ * and {@link ProductView}), which can be combined without building
+ * any intermediate automata, and explored (see {@link ExploreImplicitAutomaton})
+ * only as far as needed.
+ * 
+ * States must implement equals and hashCode so that the same
+ * state reached in different ways can be recognized.
+ * 
+ * @param <S> the type of states
+ */
+public interface ImplicitAutomaton<S> {
+	/**
+	 * @return the start state
+	 */
+	public S getStartState();
+
+	/**
+	 * @param state a state
+	 * @return true if the state is accepting, false otherwise
+	 */
+	public boolean isAccepting(S state);
+
+	/**
+	 * Get the symbols on which there may be transitions.
+	 * The returned array is sorted, and must not be modified.
+	 * 
+	 * @return the alphabet
+	 */
+	public char[] getAlphabet();
+
+	/**
+	 * Get the state reached from given state on given symbol.
+	 * 
+	 * @param state  a state
+	 * @param symbol a symbol
+	 * @return the state reached, or null if there is no transition
+	 *         (so that no string leading this way is accepted)
+	 */
+	public S getSuccessor(S state, char symbol);
+}
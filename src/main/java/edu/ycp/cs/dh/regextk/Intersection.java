@@ -22,50 +22,157 @@
 
 package edu.ycp.cs.dh.regextk;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 
 /**
  * Create a FiniteAutomaton that recognizes the intersection of
  * the languages recognized by given input automata.
  * 
+ * The result is built by a direct product construction: each state
+ * of the result corresponds to a tuple of states of the (deterministic)
+ * input automata, and only tuples reachable from the tuple of start
+ * states are created.  Nondeterministic input automata are
+ * converted to DFAs first.
+ * 
  * Result returned will be deterministic.
  */
 public class Intersection extends MultipleInputFiniteAutomatonTransformer implements FiniteAutomatonTransformer {
+	private boolean trim;
+	
+	/**
+	 * Set whether or not to remove useless states from the result
+	 * (using {@link Trim}).  The default is not to remove them.
+	 * 
+	 * @param trim true if useless states should be removed
+	 */
+	public void setTrim(boolean trim) {
+		this.trim = trim;
+	}
+	
+	/**
+	 * A tuple of state numbers, one per input automaton.
+	 */
+	private static class Tuple {
+		private int[] states;
+		private int hash;
+		
+		public Tuple(int[] states) {
+			this.states = states;
+			this.hash = Arrays.hashCode(states);
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == null || obj.getClass() != this.getClass()) {
+				return false;
+			}
+			Tuple other = (Tuple) obj;
+			return this.hash == other.hash && Arrays.equals(this.states, other.states);
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	/**
+	 * Get a view recognizing the intersection of the languages recognized
+	 * by two {@link ImplicitAutomaton}s, without building a new automaton.
+	 * 
+	 * @param a the first ImplicitAutomaton
+	 * @param b the second ImplicitAutomaton
+	 * @return the product view
+	 */
+	public static <S, T> ImplicitAutomaton<ProductView.Pair<S, T>> view(ImplicitAutomaton<S> a, ImplicitAutomaton<T> b) {
+		return new ProductView<S, T>(a, b);
+	}
 
 	@Override
 	public FiniteAutomaton execute(FiniteAutomatonTransformerMode mode) {
 		List<FiniteAutomaton> inputList = getInputList();
 		
-		// determine the overall alphabet - this determines the universe of
-		// possible input strings
-		Set<Character> universalAlphabet = FiniteAutomatonUtil.getUniversalAlphabet(inputList);
+		// make compact deterministic versions of all input automata
+		int n = inputList.size();
+		CompactAutomaton[] dfas = new CompactAutomaton[n];
+		for (int i = 0; i < n; i++) {
+			FiniteAutomaton input = inputList.get(i);
+			if (!FiniteAutomatonUtil.isDeterministic(input)) {
+				input = FiniteAutomatonUtil.convertToDFA(input);
+			}
+			dfas[i] = new CompactAutomaton(input);
+		}
+		
+		// only symbols used by the first automaton can be part of
+		// a string in the intersection
+		char[] alphabet = dfas[0].getAlphabet();
 		
-		// A ∩ B = '('A ∪ 'B)
-		// i.e., the intersection of A and B is the complement of the union of the complements of A and B
+		FiniteAutomaton result = new FiniteAutomaton();
+		Map<Tuple, State> tupleToStateMap = new HashMap<Tuple, State>();
+		List<Tuple> workList = new ArrayList<Tuple>();
 		
-		// complement all input automata
-		List<FiniteAutomaton> complementList = new LinkedList<FiniteAutomaton>();
-		for (FiniteAutomaton input : inputList) {
-			Complement makeComplement = new Complement();
-			makeComplement.add(input);
-			makeComplement.setAlphabet(universalAlphabet);
-			complementList.add(makeComplement.execute(mode));
+		// the start state corresponds to the tuple of start states
+		int[] startStates = new int[n];
+		for (int i = 0; i < n; i++) {
+			startStates[i] = dfas[i].getStartState();
 		}
+		Tuple start = new Tuple(startStates);
+		State resultStart = result.createState();
+		resultStart.setStart(true);
+		tupleToStateMap.put(start, resultStart);
+		workList.add(start);
 		
-		// create one automaton that recognizes the union of the complements of all input automata
-		Union makeUnion = new Union();
-		for (FiniteAutomaton comp : complementList) {
-			makeUnion.add(comp);
+		// explore reachable tuples in breadth-first order
+		for (int head = 0; head < workList.size(); head++) {
+			Tuple current = workList.get(head);
+			State from = tupleToStateMap.get(current);
+			from.setAccepting(allAccepting(dfas, current));
+			
+			for (char c : alphabet) {
+				int[] next = step(dfas, current, c);
+				if (next == null) {
+					// some input automaton has no transition on c
+					continue;
+				}
+				Tuple succ = new Tuple(next);
+				State to = tupleToStateMap.get(succ);
+				if (to == null) {
+					to = result.createState();
+					tupleToStateMap.put(succ, to);
+					workList.add(succ);
+				}
+				result.createTransition(from, to, c);
+			}
 		}
-		FiniteAutomaton unionOfComplements = makeUnion.execute(mode);
 		
-		// the result is the complement of the union of the complements
-		Complement makeResult = new Complement();
-		makeResult.add(unionOfComplements);
-		makeResult.setAlphabet(universalAlphabet);
-		return makeResult.execute(mode);
+		return trim ? FiniteAutomatonUtil.trim(result) : result;
+	}
+	
+	private static boolean allAccepting(CompactAutomaton[] dfas, Tuple tuple) {
+		for (int i = 0; i < dfas.length; i++) {
+			if (!dfas[i].isAccepting(tuple.states[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private static int[] step(CompactAutomaton[] dfas, Tuple tuple, char c) {
+		int[] next = new int[dfas.length];
+		for (int i = 0; i < dfas.length; i++) {
+			CompactAutomaton dfa = dfas[i];
+			int s = tuple.states[i];
+			int t = dfa.findTransition(s, c);
+			if (t >= dfa.getTransitionEnd(s) || dfa.getSymbol(t) != c) {
+				return null;
+			}
+			next[i] = dfa.getTarget(t);
+		}
+		return next;
 	}
 
 }
@@ -0,0 +1,85 @@
+// RegexToolkit - A Java library for regular expressions and finite automata
+// Copyright (C) 2013, David H. Hovemeyer <david.hovemeyer@gmail.com>
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+// 
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+// IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+// CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+// TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+// SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package edu.ycp.cs.dh.regextk;
+
+import java.util.List;
+
+/**
+ * Determine whether the difference A - B of the languages recognized
+ * by two FiniteAutomata is empty, and find strings in it, without
+ * building an automaton recognizing the difference.
+ * 
+ * The product of (the determinized) A with the complement of B
+ * (see {@link Difference#view(FiniteAutomaton, FiniteAutomaton)}) is
+ * explored using {@link ExploreImplicitAutomaton}, only as far as needed.
+ */
+public class LazyDifference {
+	private ExploreImplicitAutomaton<ProductView.Pair<StateSet, StateSet>> explorer;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param a FiniteAutomaton A
+	 * @param b FiniteAutomaton B
+	 */
+	public LazyDifference(FiniteAutomaton a, FiniteAutomaton b) {
+		this.explorer = new ExploreImplicitAutomaton<ProductView.Pair<StateSet, StateSet>>(Difference.view(a, b));
+	}
+
+	/**
+	 * Determine whether A - B is empty.
+	 * 
+	 * @return true if A - B is empty, false otherwise
+	 */
+	public boolean isEmpty() {
+		return explorer.isEmpty();
+	}
+
+	/**
+	 * Get a shortest string in A - B.
+	 * 
+	 * @return a shortest string accepted by A but not by B,
+	 *         or null if there is no such string
+	 */
+	public String getWitness() {
+		return explorer.getWitness();
+	}
+
+	/**
+	 * Get some strings in A - B, shortest first.
+	 * 
+	 * @param maxStrings the maximum number of strings to find
+	 * @return list of strings accepted by A but not by B
+	 * @see ExploreImplicitAutomaton#getWitnesses(int)
+	 */
+	public List<String> getWitnesses(int maxStrings) {
+		return explorer.getWitnesses(maxStrings);
+	}
+
+	/**
+	 * @return the number of pairs (states of the product) found so far
+	 */
+	public int getNumPairs() {
+		return explorer.getNumStates();
+	}
+}
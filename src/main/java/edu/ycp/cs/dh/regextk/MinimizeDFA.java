@@ -0,0 +1,297 @@
+// RegexToolkit - A Java library for regular expressions and finite automata
+// Copyright (C) 2013, David H. Hovemeyer <david.hovemeyer@gmail.com>
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+// 
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+// IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+// CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+// TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+// SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package edu.ycp.cs.dh.regextk;
+
+import java.util.Arrays;
+
+/**
+ * Transform a FiniteAutomaton into the minimal deterministic
+ * FiniteAutomaton recognizing the same language, using Hopcroft's
+ * partition refinement algorithm.
+ * 
+ * The result has no unreachable states and no dead states
+ * (other than the start state, if the language is empty),
+ * so it may be missing transitions on some symbols.
+ * Nondeterministic input automata are converted to DFAs first.
+ */
+public class MinimizeDFA extends SingleInputFiniteAutomatonTransformer implements FiniteAutomatonTransformer {
+	// DFA being minimized: state n is an implicit reject state,
+	// which makes the transition function total
+	private int n;
+	private char[] alphabet;
+	private int[][] delta;
+	private boolean[] accepting;
+
+	// the partition: the states in block b are
+	// elems[blockStart[b]] .. elems[blockEnd[b]-1]
+	private int numBlocks;
+	private int[] elems;
+	private int[] pos;
+	private int[] block;
+	private int[] blockStart;
+	private int[] blockEnd;
+	private int[] markEnd;
+
+	// worklist of (block, symbol) splitters
+	private int[] workList;
+	private int workSize;
+	private boolean[] inWorkList;
+
+	@Override
+	public FiniteAutomaton execute(FiniteAutomatonTransformerMode mode) {
+		// This transformer is always nondestructive
+		FiniteAutomaton fa = getInput();
+		if (!FiniteAutomatonUtil.isDeterministic(fa)) {
+			fa = FiniteAutomatonUtil.convertToDFA(fa);
+		}
+
+		buildTable(new CompactAutomaton(fa));
+		refine();
+		return buildResult();
+	}
+
+	private void buildTable(CompactAutomaton dfa) {
+		// Only states reachable from the start state are considered:
+		// number them in breadth-first order
+		alphabet = dfa.getAlphabet();
+		int[] number = new int[dfa.getNumStates()];
+		Arrays.fill(number, -1);
+		int[] order = new int[dfa.getNumStates()];
+		n = 0;
+		order[n] = dfa.getStartState();
+		number[dfa.getStartState()] = n++;
+		for (int head = 0; head < n; head++) {
+			int s = order[head];
+			for (int i = dfa.getTransitionStart(s); i < dfa.getTransitionEnd(s); i++) {
+				int t = dfa.getTarget(i);
+				if (number[t] < 0) {
+					order[n] = t;
+					number[t] = n++;
+				}
+			}
+		}
+
+		delta = new int[n + 1][alphabet.length];
+		accepting = new boolean[n + 1];
+		for (int[] row : delta) {
+			Arrays.fill(row, n);
+		}
+		for (int j = 0; j < n; j++) {
+			int s = order[j];
+			accepting[j] = dfa.isAccepting(s);
+			for (int i = dfa.getTransitionStart(s); i < dfa.getTransitionEnd(s); i++) {
+				int a = Arrays.binarySearch(alphabet, dfa.getSymbol(i));
+				delta[j][a] = number[dfa.getTarget(i)];
+			}
+		}
+	}
+
+	private void refine() {
+		int numStates = n + 1;
+		int k = alphabet.length;
+
+		// build the inverse transition function in compressed form:
+		// the predecessors of state t on symbol a are
+		// pred[predStart[a*numStates+t] .. predStart[a*numStates+t+1]-1]
+		int[] predStart = new int[k * numStates + 1];
+		for (int s = 0; s < numStates; s++) {
+			for (int a = 0; a < k; a++) {
+				predStart[a * numStates + delta[s][a] + 1]++;
+			}
+		}
+		for (int i = 0; i < k * numStates; i++) {
+			predStart[i + 1] += predStart[i];
+		}
+		int[] pred = new int[k * numStates];
+		int[] fill = Arrays.copyOf(predStart, predStart.length - 1);
+		for (int s = 0; s < numStates; s++) {
+			for (int a = 0; a < k; a++) {
+				pred[fill[a * numStates + delta[s][a]]++] = s;
+			}
+		}
+
+		// initial partition: accepting and nonaccepting states
+		elems = new int[numStates];
+		pos = new int[numStates];
+		block = new int[numStates];
+		blockStart = new int[numStates];
+		blockEnd = new int[numStates];
+		markEnd = new int[numStates];
+		int front = 0, back = numStates;
+		for (int s = 0; s < numStates; s++) {
+			if (accepting[s]) {
+				elems[front++] = s;
+			} else {
+				elems[--back] = s;
+			}
+		}
+		numBlocks = 0;
+		if (front > 0) {
+			addBlock(0, front);
+		}
+		if (back < numStates) {
+			addBlock(back, numStates);
+		}
+		for (int i = 0; i < numStates; i++) {
+			pos[elems[i]] = i;
+		}
+		for (int b = 0; b < numBlocks; b++) {
+			for (int i = blockStart[b]; i < blockEnd[b]; i++) {
+				block[elems[i]] = b;
+			}
+		}
+
+		// seed the worklist with the smaller block, on every symbol
+		workList = new int[Math.max(1, numStates * k)];
+		inWorkList = new boolean[numStates * k];
+		workSize = 0;
+		if (numBlocks == 2) {
+			int smaller = size(0) <= size(1) ? 0 : 1;
+			for (int a = 0; a < k; a++) {
+				addSplitter(smaller, a);
+			}
+		}
+
+		int[] splitter = new int[numStates];
+		int[] touched = new int[numStates];
+		while (workSize > 0) {
+			int item = workList[--workSize];
+			inWorkList[item] = false;
+			int b = item / k, a = item % k;
+
+			// collect the states that move into block b on symbol a
+			int count = 0;
+			for (int i = blockStart[b]; i < blockEnd[b]; i++) {
+				int t = elems[i];
+				for (int j = predStart[a * numStates + t]; j < predStart[a * numStates + t + 1]; j++) {
+					splitter[count++] = pred[j];
+				}
+			}
+
+			// mark them, moving each to the front of its block
+			int numTouched = 0;
+			for (int i = 0; i < count; i++) {
+				int s = splitter[i];
+				int c = block[s];
+				if (markEnd[c] == blockStart[c]) {
+					touched[numTouched++] = c;
+				}
+				int p = pos[s];
+				if (p >= markEnd[c]) {
+					int other = elems[markEnd[c]];
+					elems[p] = other;
+					pos[other] = p;
+					elems[markEnd[c]] = s;
+					pos[s] = markEnd[c];
+					markEnd[c]++;
+				}
+			}
+
+			// split every block that was only partially marked
+			for (int i = 0; i < numTouched; i++) {
+				int c = touched[i];
+				int mid = markEnd[c];
+				markEnd[c] = blockStart[c];
+				if (mid == blockEnd[c]) {
+					continue;
+				}
+
+				// the marked part becomes a new block
+				int d = addBlock(blockStart[c], mid);
+				blockStart[c] = mid;
+				markEnd[c] = mid;
+				for (int j = blockStart[d]; j < blockEnd[d]; j++) {
+					block[elems[j]] = d;
+				}
+
+				for (int x = 0; x < k; x++) {
+					if (inWorkList[c * k + x]) {
+						addSplitter(d, x);
+					} else {
+						addSplitter(size(d) <= size(c) ? d : c, x);
+					}
+				}
+			}
+		}
+	}
+
+	private int addBlock(int start, int end) {
+		int b = numBlocks++;
+		blockStart[b] = start;
+		blockEnd[b] = end;
+		markEnd[b] = start;
+		return b;
+	}
+
+	private int size(int b) {
+		return blockEnd[b] - blockStart[b];
+	}
+
+	private void addSplitter(int b, int a) {
+		int item = b * alphabet.length + a;
+		if (!inWorkList[item]) {
+			inWorkList[item] = true;
+			workList[workSize++] = item;
+		}
+	}
+
+	private FiniteAutomaton buildResult() {
+		FiniteAutomaton result = new FiniteAutomaton();
+
+		// the block containing the implicit reject state consists of
+		// dead states, which are omitted from the result
+		int deadBlock = block[n];
+		State[] blockToState = new State[numBlocks];
+
+		// create result states in breadth-first order from the start state
+		int[] order = new int[numBlocks];
+		int count = 0;
+		State start = result.createState();
+		start.setStart(true);
+		if (block[0] == deadBlock) {
+			// the language is empty
+			return result;
+		}
+		blockToState[block[0]] = start;
+		order[count++] = block[0];
+		for (int head = 0; head < count; head++) {
+			int b = order[head];
+			int rep = elems[blockStart[b]];
+			State from = blockToState[b];
+			from.setAccepting(accepting[rep]);
+			for (int a = 0; a < alphabet.length; a++) {
+				int target = block[delta[rep][a]];
+				if (target == deadBlock) {
+					continue;
+				}
+				if (blockToState[target] == null) {
+					blockToState[target] = result.createState();
+					order[count++] = target;
+				}
+				result.createTransition(from, blockToState[target], alphabet[a]);
+			}
+		}
+
+		return result;
+	}
+}
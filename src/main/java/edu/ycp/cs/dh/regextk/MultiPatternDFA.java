@@ -0,0 +1,219 @@
+// RegexToolkit - A Java library for regular expressions and finite automata
+// Copyright (C) 2013, David H. Hovemeyer <david.hovemeyer@gmail.com>
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+// 
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+// IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+// CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+// TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+// SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+
+package edu.ycp.cs.dh.regextk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Match strings against many patterns at once.
+ * 
+ * The patterns (regular expressions or FiniteAutomata) are combined into
+ * a single NFA, as in {@link Union}, which is converted into a DFA by
+ * {@link ConvertNFAToDFA}.  However, rather than merging the accepting
+ * states of the patterns into one, each DFA state records the set of
+ * patterns (identified by the order in which they were added, starting
+ * at 0) that accept in the NFA states it represents.  So, a single scan
+ * of a string determines all of the patterns that match it.
+ * 
+ * The DFA is built the first time it is needed, after which no more
+ * patterns can be added.
+ */
+public class MultiPatternDFA {
+	private static final BitSet NO_PATTERNS = new BitSet();
+
+	private List<FiniteAutomaton> patterns;
+	private FiniteAutomaton dfa;
+
+	// set of matching patterns for each DFA state
+	private BitSet[] matchingPatterns;
+
+	// transition table: next[s*alphabet.length+a] is the state reached
+	// from state s on alphabet[a], or -1 if there is no transition
+	private char[] alphabet;
+	private int minCC;
+	private int[] symbolIndex;
+	private int[] next;
+	private int startState;
+
+	/**
+	 * Constructor.
+	 */
+	public MultiPatternDFA() {
+		this.patterns = new ArrayList<FiniteAutomaton>();
+	}
+
+	/**
+	 * Add a pattern.
+	 * 
+	 * @param fa a FiniteAutomaton (deterministic or nondeterministic)
+	 * @return the pattern's id
+	 */
+	public int add(FiniteAutomaton fa) {
+		if (dfa != null) {
+			throw new IllegalStateException("Patterns cannot be added after the DFA is built");
+		}
+		patterns.add(fa);
+		return patterns.size() - 1;
+	}
+
+	/**
+	 * Add a pattern.
+	 * 
+	 * @param regexp a regular expression
+	 * @return the pattern's id
+	 */
+	public int add(String regexp) {
+		return add(FiniteAutomatonUtil.convertToNFA(regexp));
+	}
+
+	/**
+	 * @return the number of patterns
+	 */
+	public int getNumPatterns() {
+		return patterns.size();
+	}
+
+	/**
+	 * Get the combined DFA.  A state of the DFA is accepting
+	 * if at least one pattern matches in that state.
+	 * 
+	 * @return the combined DFA
+	 */
+	public FiniteAutomaton getDFA() {
+		build();
+		return dfa;
+	}
+
+	/**
+	 * Get the patterns that match in given state of the combined DFA.
+	 * 
+	 * @param s a State of the DFA returned by {@link #getDFA()}
+	 * @return the set of ids of the patterns matching in the State
+	 */
+	public BitSet getMatchingPatterns(State s) {
+		build();
+		return (BitSet) matchingPatterns[s.getNumber()].clone();
+	}
+
+	/**
+	 * Determine which patterns match a string.
+	 * 
+	 * @param s a string
+	 * @return the set of ids of the patterns which match the string
+	 */
+	public BitSet match(String s) {
+		build();
+		int k = alphabet.length;
+		int state = startState;
+		for (int i = 0; i < s.length(); i++) {
+			int c = s.charAt(i) - minCC;
+			if (c < 0 || c >= symbolIndex.length || symbolIndex[c] < 0) {
+				return new BitSet(); // symbol not in the alphabet
+			}
+			state = next[state * k + symbolIndex[c]];
+			if (state < 0) {
+				return new BitSet(); // no transition on the symbol
+			}
+		}
+		return (BitSet) matchingPatterns[state].clone();
+	}
+
+	private void build() {
+		if (dfa != null) {
+			return;
+		}
+
+		// Combine the patterns: there is a new start state with
+		// ε-transitions to the start states of the patterns, and
+		// the accepting states of each pattern are kept.
+		FiniteAutomaton nfa = new FiniteAutomaton();
+		State start = nfa.createState();
+		start.setStart(true);
+		List<List<State>> acceptingStates = new ArrayList<List<State>>();
+		for (FiniteAutomaton pattern : patterns) {
+			FiniteAutomaton input = pattern.clone();
+			List<State> accepting = input.getAcceptingStates();
+			State subStart = input.getStartState();
+			nfa.addAll(input);
+			nfa.createTransition(start, subStart, FiniteAutomaton.EPSILON);
+			subStart.setStart(false);
+			acceptingStates.add(accepting);
+		}
+
+		// the pattern accepting in each NFA state, or -1 if none
+		int[] patternOf = new int[nfa.getNumStates()];
+		Arrays.fill(patternOf, -1);
+		for (int p = 0; p < acceptingStates.size(); p++) {
+			for (State s : acceptingStates.get(p)) {
+				patternOf[s.getNumber()] = p;
+			}
+		}
+
+		ConvertNFAToDFA converter = new ConvertNFAToDFA();
+		converter.add(nfa);
+		FiniteAutomaton result = converter.execute(FiniteAutomatonTransformerMode.NONDESTRUCTIVE);
+
+		// record the matching patterns of each DFA state
+		StateSet[] nfaStateSets = converter.getNFAStateSets();
+		matchingPatterns = new BitSet[result.getNumStates()];
+		for (int d = 0; d < nfaStateSets.length; d++) {
+			BitSet matching = null;
+			StateSet set = nfaStateSets[d];
+			for (int s = set.nextState(0); s >= 0; s = set.nextState(s + 1)) {
+				if (patternOf[s] >= 0) {
+					if (matching == null) {
+						matching = new BitSet(patterns.size());
+					}
+					matching.set(patternOf[s]);
+				}
+			}
+			matchingPatterns[d] = matching != null ? matching : NO_PATTERNS;
+		}
+
+		// build the transition table
+		alphabet = new CompactAutomaton(result).getAlphabet();
+		if (alphabet.length == 0) {
+			minCC = 0;
+			symbolIndex = new int[0];
+		} else {
+			minCC = alphabet[0];
+			symbolIndex = new int[alphabet[alphabet.length - 1] + 1 - minCC];
+			Arrays.fill(symbolIndex, -1);
+			for (int a = 0; a < alphabet.length; a++) {
+				symbolIndex[alphabet[a] - minCC] = a;
+			}
+		}
+		next = new int[result.getNumStates() * alphabet.length];
+		Arrays.fill(next, -1);
+		for (Transition t : result.getAllTransitions()) {
+			next[t.getFromState().getNumber() * alphabet.length + symbolIndex[t.getSymbol() - minCC]] = t.getToState().getNumber();
+		}
+		startState = result.getStartState().getNumber();
+
+		dfa = result;
+	}
+}
@@ -0,0 +1,59 @@
+// RegexToolkit - A Java library for regular expressions and finite automata
+// Copyright (C) 2013, David H. Hovemeyer <david.hovemeyer@gmail.com>
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+// 
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+// IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+// CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+// TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+// SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package edu.ycp.cs.dh.regextk;
+
+/**
+ * Ways of converting a regular expression to an NFA.
+ */
+public enum NFAConstruction {
+	/**
+	 * Thompson's construction ({@link ConvertRegexpToNFA}): the NFA has
+	 * a unique accepting state, and uses epsilon transitions to combine
+	 * the NFAs for subexpressions.
+	 */
+	THOMPSON,
+	
+	/**
+	 * Glushkov's position automaton ({@link ConvertRegexpToGlushkovNFA}):
+	 * the NFA has no epsilon transitions, and one state per occurrence
+	 * of a symbol in the regexp (plus a start state).
+	 */
+	GLUSHKOV;
+	
+	/**
+	 * Convert a regular expression to an NFA using this construction.
+	 * 
+	 * @param regexp a regular expression
+	 * @return an NFA recognizing the language generated by the regular expression
+	 */
+	public FiniteAutomaton convertToNFA(String regexp) {
+		switch (this) {
+		case THOMPSON:
+			return new ConvertRegexpToNFA(regexp).convertToNFA();
+		case GLUSHKOV:
+			return new ConvertRegexpToGlushkovNFA(regexp).convertToNFA();
+		default:
+			throw new IllegalStateException("Unknown construction " + this);
+		}
+	}
+}
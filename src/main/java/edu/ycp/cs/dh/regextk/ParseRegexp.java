@@ -0,0 +1,217 @@
+// RegexToolkit - A Java library for regular expressions and finite automata
+// Copyright (C) 2013, David H. Hovemeyer <david.hovemeyer@gmail.com>
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+// 
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+// IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+// CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+// TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+// SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package edu.ycp.cs.dh.regextk;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parse a regular expression into a {@link Regexp}.
+ * The syntax is the same as the one accepted by {@link ConvertRegexpToNFA}.
+ * The result is hash-consed: identical subexpressions are represented
+ * by the same Regexp object, so a regexp which repeats subexpressions
+ * is stored compactly, and repeated subexpressions can be recognized
+ * cheaply (e.g., to compile each of them only once.)
+ */
+public class ParseRegexp {
+	/*
+	Grammar for simple regexps (see ConvertRegexpToNFA):
+
+	R := E
+	R := E|R        disjunction
+	E := T
+	E := TE         concatenation
+	T := F
+	T := F*         repetition (0 or more)
+	T := F+         repetition (1 or more)
+	T := F?         optional (0 or 1)
+	F := s          literal characters
+	F := ε          epsilon
+	F := (R)        grouping
+
+	 */
+
+	private String regexp;
+	private int pos;
+	private int nextCh;
+
+	// hash-consing table: the unique representative of each subexpression
+	private Map<Regexp, Regexp> table;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param regexp a string containing a regular expression
+	 */
+	public ParseRegexp(String regexp) {
+		this.regexp = regexp;
+		this.pos = 0;
+		this.nextCh = -1;
+		this.table = new HashMap<Regexp, Regexp>();
+	}
+
+	// An enclosing (parenthesized) regexp, or the entire regexp:
+	// the alternatives seen so far, and the parts of the
+	// concatenation being parsed.
+	private class Group {
+		private List<Regexp> alternatives = new ArrayList<Regexp>();
+		private List<Regexp> parts = new ArrayList<Regexp>();
+
+		public void endConcatenation() {
+			alternatives.add(intern(Regexp.concat(parts)));
+			parts = new ArrayList<Regexp>();
+		}
+
+		public Regexp toRegexp() {
+			return intern(Regexp.alternation(alternatives));
+		}
+	}
+
+	/**
+	 * Parse the regular expression (passed to the constructor).
+	 * The parser is not recursive: nested groups are kept on an
+	 * explicit stack, so deeply nested or very long regexps
+	 * can be parsed.
+	 * 
+	 * @return the parsed {@link Regexp}
+	 */
+	public Regexp parse() {
+		ArrayDeque<Group> enclosing = new ArrayDeque<Group>();
+		Group group = new Group();
+		Regexp result = null;
+
+		while (result == null) {
+			// F := s          literal characters
+			// F := ε          epsilon
+			// F := (R)        grouping
+			int c = next();
+			if (c == '(') {
+				enclosing.push(group);
+				group = new Group();
+				continue;
+			}
+			Regexp f = intern(Regexp.symbol((char) c));
+
+			while (true) {
+				// T := F, F*, F+, or F?
+				group.parts.add(parseRepetition(f));
+
+				// E := T
+				// E := TE         concatenation
+				c = peek();
+				if (c >= 0 && c != ')' && c != '|') {
+					break;
+				}
+				group.endConcatenation();
+
+				// R := E
+				// R := E|R        disjunction
+				if (c == '|') {
+					expect('|');
+					break;
+				}
+
+				// end of R: either the end of a group, or of the entire regexp
+				if (enclosing.isEmpty()) {
+					result = group.toRegexp();
+					break;
+				}
+				expect(')');
+				f = group.toRegexp();
+				group = enclosing.pop();
+			}
+		}
+
+		// Make sure that the entire regular expression was parsed.
+		if (!regexp.substring(pos).trim().isEmpty()) {
+			throw new IllegalArgumentException("Regular expression had trailing symbols (mismatched parens?)");
+		}
+
+		return result;
+	}
+
+	private Regexp parseRepetition(Regexp f) {
+		// T := F
+		// T := F*         repetition (0 or more)
+		// T := F+         repetition (1 or more)
+		// T := F?         optional (0 or 1)
+
+		int c = peek();
+		if (c == '*') {
+			expect('*');
+			return intern(Regexp.star(f));
+		} else if (c == '+') {
+			expect('+');
+			return intern(Regexp.plus(f));
+		} else if (c == '?') {
+			expect('?');
+			return intern(Regexp.optional(f));
+		}
+
+		return f;
+	}
+
+	// Get the unique representative of a regexp whose children
+	// are already unique representatives.
+	private Regexp intern(Regexp r) {
+		Regexp existing = table.get(r);
+		if (existing != null) {
+			return existing;
+		}
+		table.put(r, r);
+		return r;
+	}
+
+	private int peek() {
+		while (this.nextCh < 0 && pos < regexp.length()) {
+			int nextCh = regexp.charAt(pos++);
+
+			// It's only a "valid" character if it isn't a space character
+			if (!Character.isSpaceChar(nextCh)) {
+				this.nextCh = nextCh == 'e' ? FiniteAutomaton.EPSILON : nextCh;
+				break;
+			}
+		}
+
+		return this.nextCh;
+	}
+
+	private int next() {
+		int c = peek();
+		if (c < 0) {
+			throw new IllegalArgumentException("regexp ended unexpectedly");
+		}
+		nextCh = -1;
+		return c;
+	}
+
+	private void expect(int c) {
+		int n = next();
+		if (n != c) {
+			throw new IllegalArgumentException("regexp parse error: expected " + ((char)c) + ", saw " + ((char)n));
+		}
+	}
+}
@@ -0,0 +1,145 @@
+// RegexToolkit - A Java library for regular expressions and finite automata
+// Copyright (C) 2013, David H. Hovemeyer <david.hovemeyer@gmail.com>
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+// 
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+// IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+// CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+// TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+// SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package edu.ycp.cs.dh.regextk;
+
+/**
+ * View of two {@link ImplicitAutomaton}s as a single ImplicitAutomaton
+ * recognizing the intersection of their languages (see {@link Intersection}).
+ * Each state is a pair of states, one from each automaton.
+ * 
+ * @param <S> the type of states of the first automaton
+ * @param <T> the type of states of the second automaton
+ */
+public class ProductView<S, T> implements ImplicitAutomaton<ProductView.Pair<S, T>> {
+	/**
+	 * A state of the product.
+	 * 
+	 * @param <S> the type of states of the first automaton
+	 * @param <T> the type of states of the second automaton
+	 */
+	public static class Pair<S, T> {
+		private final S first;
+		private final T second;
+		private final int hash;
+
+		public Pair(S first, T second) {
+			this.first = first;
+			this.second = second;
+			this.hash = first.hashCode() * 31 + second.hashCode();
+		}
+
+		/**
+		 * @return the state of the first automaton
+		 */
+		public S getFirst() {
+			return first;
+		}
+
+		/**
+		 * @return the state of the second automaton
+		 */
+		public T getSecond() {
+			return second;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == null || obj.getClass() != this.getClass()) {
+				return false;
+			}
+			Pair<?, ?> other = (Pair<?, ?>) obj;
+			return hash == other.hash && first.equals(other.first) && second.equals(other.second);
+		}
+
+		@Override
+		public String toString() {
+			return "(" + first + ", " + second + ")";
+		}
+	}
+
+	private ImplicitAutomaton<S> first;
+	private ImplicitAutomaton<T> second;
+	private char[] alphabet;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param first  the first automaton
+	 * @param second the second automaton
+	 */
+	public ProductView(ImplicitAutomaton<S> first, ImplicitAutomaton<T> second) {
+		this.first = first;
+		this.second = second;
+		this.alphabet = merge(first.getAlphabet(), second.getAlphabet());
+	}
+
+	// Merge two sorted alphabets.
+	private static char[] merge(char[] a, char[] b) {
+		StringBuilder buf = new StringBuilder();
+		int i = 0, j = 0;
+		while (i < a.length || j < b.length) {
+			if (j == b.length || (i < a.length && a[i] < b[j])) {
+				buf.append(a[i++]);
+			} else if (i == a.length || b[j] < a[i]) {
+				buf.append(b[j++]);
+			} else {
+				buf.append(a[i++]);
+				j++;
+			}
+		}
+		return buf.toString().toCharArray();
+	}
+
+	@Override
+	public Pair<S, T> getStartState() {
+		return new Pair<S, T>(first.getStartState(), second.getStartState());
+	}
+
+	@Override
+	public boolean isAccepting(Pair<S, T> state) {
+		return first.isAccepting(state.first) && second.isAccepting(state.second);
+	}
+
+	@Override
+	public char[] getAlphabet() {
+		return alphabet;
+	}
+
+	@Override
+	public Pair<S, T> getSuccessor(Pair<S, T> state, char symbol) {
+		S nextFirst = first.getSuccessor(state.first, symbol);
+		if (nextFirst == null) {
+			return null;
+		}
+		T nextSecond = second.getSuccessor(state.second, symbol);
+		if (nextSecond == null) {
+			return null;
+		}
+		return new Pair<S, T>(nextFirst, nextSecond);
+	}
+}
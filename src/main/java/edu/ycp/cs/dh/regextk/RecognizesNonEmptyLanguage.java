@@ -22,31 +22,62 @@
 
 package edu.ycp.cs.dh.regextk;
 
-import java.util.LinkedList;
-import java.util.Set;
-import java.util.TreeSet;
-
+/**
+ * Determine whether a FiniteAutomaton recognizes a non-empty language,
+ * i.e., whether any accepting state is reachable from the start state.
+ */
 public class RecognizesNonEmptyLanguage {
+	/**
+	 * Determine whether given FiniteAutomaton recognizes a non-empty language.
+	 * 
+	 * @param fa a FiniteAutomaton
+	 * @return true if the automaton accepts at least one string, false otherwise
+	 */
 	public boolean execute(FiniteAutomaton fa) {
+		return execute(new CompactAutomaton(fa));
+	}
+
+	/**
+	 * Determine whether given {@link ImplicitAutomaton} recognizes a non-empty
+	 * language.  Only the part of the automaton needed to find an accepting
+	 * state is explored.
+	 * 
+	 * @param ia an ImplicitAutomaton
+	 * @return true if the automaton accepts at least one string, false otherwise
+	 */
+	public <S> boolean execute(ImplicitAutomaton<S> ia) {
+		return !new ExploreImplicitAutomaton<S>(ia).isEmpty();
+	}
+
+	/**
+	 * Determine whether given CompactAutomaton recognizes a non-empty language.
+	 * 
+	 * @param ca a CompactAutomaton
+	 * @return true if the automaton accepts at least one string, false otherwise
+	 */
+	public boolean execute(CompactAutomaton ca) {
 		// If any path from the start state leads to an accepting state,
 		// then the automaton accepts at least one string.
 		
-		LinkedList<State> workList = new LinkedList<State>();
-		Set<State> seen = new TreeSet<State>();
+		int[] workList = new int[ca.getNumStates()];
+		boolean[] seen = new boolean[ca.getNumStates()];
+		int head = 0, tail = 0;
 		
-		workList.add(fa.getStartState());
+		workList[tail++] = ca.getStartState();
+		seen[ca.getStartState()] = true;
 		
-		while (!workList.isEmpty()) {
-			State s = workList.removeFirst();
-			seen.add(s);
+		while (head < tail) {
+			int s = workList[head++];
 			
-			if (s.isAccepting()) {
+			if (ca.isAccepting(s)) {
 				return true;
 			}
 			
-			for (Transition t : fa.getTransitions(s)) {
-				if (!seen.contains(t.getToState())) {
-					workList.addLast(t.getToState());
+			for (int i = ca.getTransitionStart(s); i < ca.getTransitionEnd(s); i++) {
+				int target = ca.getTarget(i);
+				if (!seen[target]) {
+					seen[target] = true;
+					workList[tail++] = target;
 				}
 			}
 		}
@@ -0,0 +1,223 @@
+// RegexToolkit - A Java library for regular expressions and finite automata
+// Copyright (C) 2013, David H. Hovemeyer <david.hovemeyer@gmail.com>
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+// 
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+// IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+// CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+// TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+// SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+
+package edu.ycp.cs.dh.regextk;
+
+import java.util.Arrays;
+
+/**
+ * Transform a FiniteAutomaton into an equivalent one with (usually)
+ * fewer states and transitions, using simulation relations.
+ * This is useful before converting an NFA to a DFA, since the cost
+ * of the subset construction can grow exponentially with the
+ * size of the NFA.
+ * 
+ * Epsilon transitions are removed first (see {@link RemoveEpsilonTransitions}),
+ * along with the states that become useless (see {@link Trim}).
+ * Then, in turn for the forward and the backward simulation
+ * (see {@link SimulationRelation}):
+ * <ul>
+ * <li>states that simulate each other are merged into a single state</li>
+ * <li>transitions that are subsumed by another transition are removed:
+ *     a forward transition from p to r is subsumed by a transition from p to r'
+ *     on the same symbol if r' strictly simulates r, and a transition from p to r
+ *     is subsumed by a transition from p' to r on the same symbol if p'
+ *     strictly backward simulates p</li>
+ * </ul>
+ * The simulations are not computed for automata with more than
+ * {@link CheckEquivalenceAntichain#MAX_SIMULATION_STATES} states,
+ * in which case only the epsilon transitions are removed.
+ * 
+ * The result is nondeterministic in general, even if the
+ * input automaton is deterministic.
+ */
+public class ReduceBySimulation extends SingleInputFiniteAutomatonTransformer implements FiniteAutomatonTransformer {
+	@Override
+	public FiniteAutomaton execute(FiniteAutomatonTransformerMode mode) {
+		// This transformer is always nondestructive
+		FiniteAutomaton fa = FiniteAutomatonUtil.trim(FiniteAutomatonUtil.removeEpsilonTransitions(getInput()));
+		if (fa.getNumStates() > CheckEquivalenceAntichain.MAX_SIMULATION_STATES) {
+			return fa;
+		}
+		
+		CompactAutomaton ca = new CompactAutomaton(fa);
+		ca = quotient(ca, SimulationRelation.forward(ca));
+		ca = pruneForward(ca, SimulationRelation.forward(ca));
+		ca = quotient(ca, SimulationRelation.backward(ca));
+		ca = pruneBackward(ca, SimulationRelation.backward(ca));
+		return ca.toFiniteAutomaton();
+	}
+
+	// Merge states that simulate each other.
+	private static CompactAutomaton quotient(CompactAutomaton ca, SimulationRelation sim) {
+		int n = ca.getNumStates();
+		int[] classOf = new int[n];
+		Arrays.fill(classOf, -1);
+		int numClasses = 0;
+		for (int p = 0; p < n; p++) {
+			if (classOf[p] >= 0) {
+				continue;
+			}
+			StateSet simulators = sim.getSimulators(p);
+			for (int q = simulators.nextState(0); q >= 0; q = simulators.nextState(q + 1)) {
+				if (sim.isSimulatedBy(q, p)) {
+					classOf[q] = numClasses;
+				}
+			}
+			numClasses++;
+		}
+		if (numClasses == n) {
+			return ca;
+		}
+		
+		// a merged state is accepting if any of its members is accepting
+		FiniteAutomaton result = new FiniteAutomaton();
+		State[] states = new State[numClasses];
+		for (int c = 0; c < numClasses; c++) {
+			states[c] = result.createState();
+		}
+		states[classOf[ca.getStartState()]].setStart(true);
+		long[][] rows = new long[numClasses][];
+		int[] rowSize = new int[numClasses];
+		for (int p = 0; p < n; p++) {
+			int c = classOf[p];
+			if (ca.isAccepting(p)) {
+				states[c].setAccepting(true);
+			}
+			for (int i = ca.getTransitionStart(p); i < ca.getTransitionEnd(p); i++) {
+				if (rows[c] == null) {
+					rows[c] = new long[4];
+				} else if (rowSize[c] == rows[c].length) {
+					rows[c] = Arrays.copyOf(rows[c], 2 * rowSize[c]);
+				}
+				rows[c][rowSize[c]++] = ((long) ca.getSymbol(i) << 32) | classOf[ca.getTarget(i)];
+			}
+		}
+		
+		// create the transitions, ignoring duplicates
+		for (int c = 0; c < numClasses; c++) {
+			long[] row = rows[c];
+			int size = rowSize[c];
+			if (row == null) {
+				continue;
+			}
+			Arrays.sort(row, 0, size);
+			for (int i = 0; i < size; i++) {
+				if (i == 0 || row[i] != row[i - 1]) {
+					result.createTransition(states[c], states[(int) row[i]], (char) (row[i] >>> 32));
+				}
+			}
+		}
+		
+		return new CompactAutomaton(result);
+	}
+
+	// Remove each transition from p to r for which there is a transition
+	// from p to r' on the same symbol, where r' strictly simulates r.
+	private static CompactAutomaton pruneForward(CompactAutomaton ca, SimulationRelation sim) {
+		int n = ca.getNumStates();
+		boolean[] removed = new boolean[ca.getNumTransitions()];
+		int numRemoved = 0;
+		for (int p = 0; p < n; p++) {
+			int end = ca.getTransitionEnd(p);
+			for (int i = ca.getTransitionStart(p); i < end; i++) {
+				// transitions on the same symbol are adjacent
+				for (int j = ca.getTransitionStart(p); j < end; j++) {
+					if (j != i && ca.getSymbol(j) == ca.getSymbol(i) && !removed[j]
+							&& isStrictlySimulatedBy(sim, ca.getTarget(i), ca.getTarget(j))) {
+						removed[i] = true;
+						numRemoved++;
+						break;
+					}
+				}
+			}
+		}
+		return numRemoved > 0 ? removeTransitions(ca, removed) : ca;
+	}
+
+	// Remove each transition from p to r for which there is a transition
+	// from p' to r on the same symbol, where p' strictly backward simulates p.
+	private static CompactAutomaton pruneBackward(CompactAutomaton ca, SimulationRelation sim) {
+		int n = ca.getNumStates();
+		int numTransitions = ca.getNumTransitions();
+		
+		// group the transitions by target state
+		int[] source = new int[numTransitions];
+		int[] start = new int[n + 1];
+		for (int p = 0; p < n; p++) {
+			for (int i = ca.getTransitionStart(p); i < ca.getTransitionEnd(p); i++) {
+				source[i] = p;
+				start[ca.getTarget(i) + 1]++;
+			}
+		}
+		for (int r = 0; r < n; r++) {
+			start[r + 1] += start[r];
+		}
+		int[] incoming = new int[numTransitions];
+		int[] fill = Arrays.copyOf(start, n);
+		for (int i = 0; i < numTransitions; i++) {
+			incoming[fill[ca.getTarget(i)]++] = i;
+		}
+		
+		boolean[] removed = new boolean[numTransitions];
+		int numRemoved = 0;
+		for (int r = 0; r < n; r++) {
+			for (int x = start[r]; x < start[r + 1]; x++) {
+				int i = incoming[x];
+				for (int y = start[r]; y < start[r + 1]; y++) {
+					int j = incoming[y];
+					if (j != i && ca.getSymbol(j) == ca.getSymbol(i) && !removed[j]
+							&& isStrictlySimulatedBy(sim, source[i], source[j])) {
+						removed[i] = true;
+						numRemoved++;
+						break;
+					}
+				}
+			}
+		}
+		return numRemoved > 0 ? removeTransitions(ca, removed) : ca;
+	}
+
+	private static boolean isStrictlySimulatedBy(SimulationRelation sim, int p, int q) {
+		return sim.isSimulatedBy(p, q) && !sim.isSimulatedBy(q, p);
+	}
+
+	private static CompactAutomaton removeTransitions(CompactAutomaton ca, boolean[] removed) {
+		FiniteAutomaton result = new FiniteAutomaton();
+		int n = ca.getNumStates();
+		State[] states = new State[n];
+		for (int p = 0; p < n; p++) {
+			states[p] = result.createState();
+			states[p].setAccepting(ca.isAccepting(p));
+		}
+		states[ca.getStartState()].setStart(true);
+		for (int p = 0; p < n; p++) {
+			for (int i = ca.getTransitionStart(p); i < ca.getTransitionEnd(p); i++) {
+				if (!removed[i]) {
+					result.createTransition(states[p], states[ca.getTarget(i)], ca.getSymbol(i));
+				}
+			}
+		}
+		return new CompactAutomaton(result);
+	}
+}
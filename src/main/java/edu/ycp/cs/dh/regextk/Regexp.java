@@ -0,0 +1,319 @@
+// RegexToolkit - A Java library for regular expressions and finite automata
+// Copyright (C) 2013, David H. Hovemeyer <david.hovemeyer@gmail.com>
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+// 
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+// IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+// CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+// TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+// SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package edu.ycp.cs.dh.regextk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A parsed regular expression (abstract syntax tree).
+ * Regexps are immutable, and are created using the static
+ * factory methods, or by parsing with {@link ParseRegexp}.
+ * Concatenations and alternations may have any number
+ * (at least two) of children.
+ */
+public class Regexp {
+	/**
+	 * Kinds of regular expressions.
+	 */
+	public enum Kind {
+		/** The empty language (cannot be written in regexp syntax). */
+		EMPTY_SET,
+		/** The empty string. */
+		EPSILON,
+		/** A single symbol. */
+		SYMBOL,
+		/** Concatenation of two or more regexps. */
+		CONCAT,
+		/** Alternation (disjunction) of two or more regexps. */
+		ALTERNATION,
+		/** Zero or more repetitions. */
+		STAR,
+		/** One or more repetitions. */
+		PLUS,
+		/** Zero or one occurrences. */
+		OPTIONAL,
+	}
+
+	private static final Regexp EMPTY_SET_REGEXP = new Regexp(Kind.EMPTY_SET, FiniteAutomaton.EPSILON, Collections.<Regexp>emptyList());
+	private static final Regexp EPSILON_REGEXP = new Regexp(Kind.EPSILON, FiniteAutomaton.EPSILON, Collections.<Regexp>emptyList());
+
+	private final Kind kind;
+	private final char symbol;
+	private final List<Regexp> children;
+	private final boolean nullable;
+	private final int hash;
+
+	private Regexp(Kind kind, char symbol, List<Regexp> children) {
+		this.kind = kind;
+		this.symbol = symbol;
+		this.children = children;
+		this.nullable = computeNullable();
+		this.hash = (kind.ordinal() * 31 + symbol) * 31 + children.hashCode();
+	}
+
+	private boolean computeNullable() {
+		switch (kind) {
+		case EPSILON:
+		case STAR:
+		case OPTIONAL:
+			return true;
+		case CONCAT:
+			for (Regexp r : children) {
+				if (!r.nullable) {
+					return false;
+				}
+			}
+			return true;
+		case ALTERNATION:
+			for (Regexp r : children) {
+				if (r.nullable) {
+					return true;
+				}
+			}
+			return false;
+		case PLUS:
+			return getChild().nullable;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * @return the regexp generating no strings at all
+	 */
+	public static Regexp emptySet() {
+		return EMPTY_SET_REGEXP;
+	}
+
+	/**
+	 * @return the regexp generating only the empty string
+	 */
+	public static Regexp epsilon() {
+		return EPSILON_REGEXP;
+	}
+
+	/**
+	 * @param symbol a symbol
+	 * @return the regexp generating the single symbol
+	 */
+	public static Regexp symbol(char symbol) {
+		if (symbol == FiniteAutomaton.EPSILON) {
+			return EPSILON_REGEXP;
+		}
+		return new Regexp(Kind.SYMBOL, symbol, Collections.<Regexp>emptyList());
+	}
+
+	/**
+	 * Create a concatenation.  Nested concatenations are flattened,
+	 * and a single regexp is returned as-is.
+	 * 
+	 * @param parts the regexps to concatenate (at least one)
+	 * @return the concatenation
+	 */
+	public static Regexp concat(List<Regexp> parts) {
+		return nary(Kind.CONCAT, parts);
+	}
+
+	/**
+	 * Create a concatenation of two regexps.  Unlike {@link #concat(List)},
+	 * the result is not flattened, so the second regexp may be the
+	 * rest of a longer concatenation, shared rather than copied.
+	 * 
+	 * @param first the first regexp
+	 * @param rest  the regexp following it
+	 * @return the concatenation
+	 */
+	public static Regexp concat(Regexp first, Regexp rest) {
+		return new Regexp(Kind.CONCAT, FiniteAutomaton.EPSILON, Collections.unmodifiableList(Arrays.asList(first, rest)));
+	}
+
+	/**
+	 * Create an alternation.  Nested alternations are flattened,
+	 * and a single regexp is returned as-is.
+	 * 
+	 * @param alternatives the alternatives (at least one)
+	 * @return the alternation
+	 */
+	public static Regexp alternation(List<Regexp> alternatives) {
+		return nary(Kind.ALTERNATION, alternatives);
+	}
+
+	/**
+	 * @param r a regexp
+	 * @return regexp generating zero or more repetitions of r
+	 */
+	public static Regexp star(Regexp r) {
+		return new Regexp(Kind.STAR, FiniteAutomaton.EPSILON, Collections.singletonList(r));
+	}
+
+	/**
+	 * @param r a regexp
+	 * @return regexp generating one or more repetitions of r
+	 */
+	public static Regexp plus(Regexp r) {
+		return new Regexp(Kind.PLUS, FiniteAutomaton.EPSILON, Collections.singletonList(r));
+	}
+
+	/**
+	 * @param r a regexp
+	 * @return regexp generating zero or one occurrences of r
+	 */
+	public static Regexp optional(Regexp r) {
+		return new Regexp(Kind.OPTIONAL, FiniteAutomaton.EPSILON, Collections.singletonList(r));
+	}
+
+	private static Regexp nary(Kind kind, List<Regexp> parts) {
+		if (parts.isEmpty()) {
+			throw new IllegalArgumentException("No regexps to combine");
+		}
+		if (parts.size() == 1) {
+			return parts.get(0);
+		}
+		List<Regexp> flat = new ArrayList<Regexp>();
+		for (Regexp r : parts) {
+			if (r.kind == kind) {
+				flat.addAll(r.children);
+			} else {
+				flat.add(r);
+			}
+		}
+		return new Regexp(kind, FiniteAutomaton.EPSILON, Collections.unmodifiableList(flat));
+	}
+
+	/**
+	 * @return the kind of regexp
+	 */
+	public Kind getKind() {
+		return kind;
+	}
+
+	/**
+	 * @return true if this regexp generates the empty string, false otherwise
+	 */
+	public boolean isNullable() {
+		return nullable;
+	}
+
+	/**
+	 * @return the symbol (only meaningful for {@link Kind#SYMBOL} regexps)
+	 */
+	public char getSymbol() {
+		return symbol;
+	}
+
+	/**
+	 * @return the (unmodifiable) list of child regexps
+	 */
+	public List<Regexp> getChildren() {
+		return children;
+	}
+
+	/**
+	 * @return the only child (for {@link Kind#STAR}, {@link Kind#PLUS},
+	 *         and {@link Kind#OPTIONAL} regexps)
+	 */
+	public Regexp getChild() {
+		return children.get(0);
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null || obj.getClass() != this.getClass()) {
+			return false;
+		}
+		Regexp other = (Regexp) obj;
+		return hash == other.hash
+				&& kind == other.kind
+				&& symbol == other.symbol
+				&& children.equals(other.children);
+	}
+
+	/**
+	 * Convert back to the syntax accepted by {@link ParseRegexp}.
+	 * (Symbols that are also operators, such as "*", and the empty set
+	 * cannot be written in that syntax, so they are not converted faithfully.)
+	 */
+	@Override
+	public String toString() {
+		StringBuilder buf = new StringBuilder();
+		append(buf);
+		return buf.toString();
+	}
+
+	private void append(StringBuilder buf) {
+		switch (kind) {
+		case EMPTY_SET:
+			buf.append('\u2205');
+			break;
+		case EPSILON:
+			buf.append(FiniteAutomaton.EPSILON);
+			break;
+		case SYMBOL:
+			buf.append(symbol);
+			break;
+		case CONCAT:
+			for (Regexp r : children) {
+				r.appendGrouped(buf, r.kind == Kind.ALTERNATION);
+			}
+			break;
+		case ALTERNATION:
+			for (int i = 0; i < children.size(); i++) {
+				if (i > 0) {
+					buf.append('|');
+				}
+				children.get(i).append(buf);
+			}
+			break;
+		case STAR:
+		case PLUS:
+		case OPTIONAL:
+			Regexp child = getChild();
+			child.appendGrouped(buf, child.kind != Kind.SYMBOL && child.kind != Kind.EPSILON);
+			buf.append(kind == Kind.STAR ? '*' : kind == Kind.PLUS ? '+' : '?');
+			break;
+		default:
+			throw new IllegalStateException("Unknown regexp kind " + kind);
+		}
+	}
+
+	private void appendGrouped(StringBuilder buf, boolean group) {
+		if (group) {
+			buf.append('(');
+		}
+		append(buf);
+		if (group) {
+			buf.append(')');
+		}
+	}
+}
@@ -0,0 +1,100 @@
+// RegexToolkit - A Java library for regular expressions and finite automata
+// Copyright (C) 2013, David H. Hovemeyer <david.hovemeyer@gmail.com>
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+// 
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+// IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+// CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+// TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+// SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+
+package edu.ycp.cs.dh.regextk;
+
+import java.util.Arrays;
+
+/**
+ * Transform a FiniteAutomaton into an equivalent one with no
+ * epsilon transitions.
+ * 
+ * First, each strongly connected component of the graph of
+ * epsilon transitions (for example, the cycle created for each
+ * <code>*</code> or <code>+</code> in a regexp) is collapsed into
+ * a single state, since all of the states in a component are
+ * interchangeable.  Then the remaining epsilon transitions are
+ * removed: the state for a component is accepting if its epsilon
+ * closure contains an accepting state, and has a transition on a
+ * symbol to (the component of) every state directly reachable from
+ * its epsilon closure on that symbol.
+ * 
+ * States which were only reachable by epsilon transitions become
+ * unreachable in the result, but are not removed.
+ */
+public class RemoveEpsilonTransitions extends SingleInputFiniteAutomatonTransformer implements FiniteAutomatonTransformer {
+	@Override
+	public FiniteAutomaton execute(FiniteAutomatonTransformerMode mode) {
+		// This transformer is always nondestructive
+		CompactAutomaton ca = new CompactAutomaton(getInput());
+		ClosureIndex index = ca.getClosureIndex();
+		int numStates = ca.getNumStates();
+		
+		// create one State for each component, in order of
+		// the lowest-numbered state in the component
+		FiniteAutomaton result = new FiniteAutomaton();
+		State[] componentStates = new State[index.getNumComponents()];
+		int[] representatives = new int[index.getNumComponents()];
+		for (int s = 0; s < numStates; s++) {
+			int c = index.getComponent(s);
+			if (componentStates[c] == null) {
+				componentStates[c] = result.createState();
+				representatives[componentStates[c].getNumber()] = s;
+			}
+		}
+		componentStates[index.getComponent(ca.getStartState())].setStart(true);
+		
+		long[] row = new long[16];
+		for (State state : result.getStates()) {
+			StateSet closure = new StateSet(numStates);
+			index.addClosure(representatives[state.getNumber()], closure);
+			
+			// collect the (symbol, target component) pairs
+			int n = 0;
+			for (int t = closure.nextState(0); t >= 0; t = closure.nextState(t + 1)) {
+				if (ca.isAccepting(t)) {
+					state.setAccepting(true);
+				}
+				for (int i = ca.getTransitionStart(t); i < ca.getTransitionEnd(t); i++) {
+					if (ca.getSymbol(i) != FiniteAutomaton.EPSILON) {
+						if (n == row.length) {
+							row = Arrays.copyOf(row, 2 * n);
+						}
+						row[n++] = ((long) ca.getSymbol(i) << 32) | index.getComponent(ca.getTarget(i));
+					}
+				}
+			}
+			
+			// create the transitions, ignoring duplicates
+			Arrays.sort(row, 0, n);
+			for (int i = 0; i < n; i++) {
+				if (i > 0 && row[i] == row[i - 1]) {
+					continue;
+				}
+				result.createTransition(state, componentStates[(int) row[i]], (char) (row[i] >>> 32));
+			}
+		}
+		
+		return result;
+	}
+}
@@ -0,0 +1,68 @@
+// RegexToolkit - A Java library for regular expressions and finite automata
+// Copyright (C) 2013, David H. Hovemeyer <david.hovemeyer@gmail.com>
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+// 
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+// IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+// CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+// TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+// SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+
+package edu.ycp.cs.dh.regextk;
+
+import java.util.List;
+
+/**
+ * Create a FiniteAutomaton that recognizes the reversal of the language
+ * recognized by the input FiniteAutomaton (the strings recognized by the
+ * input, written backwards.)  Every transition is reversed, the start state
+ * becomes the accepting state, and a new start state has epsilon transitions
+ * to the original accepting states (unless there is only one accepting state,
+ * in which case it becomes the start state.)  The original states keep
+ * their numbers.  The result will usually be nondeterministic.
+ */
+public class Reverse extends SingleInputFiniteAutomatonTransformer implements FiniteAutomatonTransformer {
+	@Override
+	public FiniteAutomaton execute(FiniteAutomatonTransformerMode mode) {
+		// This transformer is always nondestructive
+		FiniteAutomaton input = getInput();
+		FiniteAutomaton result = new FiniteAutomaton();
+		for (int i = 0; i < input.getNumStates(); i++) {
+			result.createState();
+		}
+
+		// reverse the transitions
+		for (Transition t : input.getAllTransitions()) {
+			result.createTransition(result.getState(t.getToState().getNumber()),
+					result.getState(t.getFromState().getNumber()), t.getSymbol());
+		}
+
+		result.getState(input.getStartState().getNumber()).setAccepting(true);
+
+		List<State> accepting = input.getAcceptingStates();
+		if (accepting.size() == 1) {
+			result.getState(accepting.get(0).getNumber()).setStart(true);
+		} else {
+			State start = result.createState();
+			start.setStart(true);
+			for (State s : accepting) {
+				result.createTransition(start, result.getState(s.getNumber()), FiniteAutomaton.EPSILON);
+			}
+		}
+
+		return result;
+	}
+}
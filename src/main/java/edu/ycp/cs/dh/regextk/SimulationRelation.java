@@ -0,0 +1,245 @@
+// RegexToolkit - A Java library for regular expressions and finite automata
+// Copyright (C) 2013, David H. Hovemeyer <david.hovemeyer@gmail.com>
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+// 
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+// IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+// CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+// TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+// SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package edu.ycp.cs.dh.regextk;
+
+import java.util.Arrays;
+
+/**
+ * A simulation preorder on the states of an automaton without
+ * epsilon transitions.  Both forward simulations (described below)
+ * and backward simulations (see {@link #backward(CompactAutomaton)})
+ * can be computed.
+ * 
+ * State q (forward) simulates state p if q is accepting whenever p is,
+ * and for every transition from p to p' on a symbol there is a
+ * transition from q to some q' on the same symbol such that q'
+ * simulates p'.  If q simulates p, then every string accepted
+ * starting from p is also accepted starting from q.
+ * 
+ * The relation computed is the largest simulation, found by
+ * starting from all pairs allowed by the acceptance condition and
+ * removing pairs that violate the transition condition until
+ * nothing changes.
+ */
+public class SimulationRelation {
+	private StateSet[] simulators;
+
+	private SimulationRelation(int numStates) {
+		this.simulators = new StateSet[numStates];
+	}
+
+	/**
+	 * Get the identity relation, in which every state simulates only itself.
+	 * This is a (trivial) simulation on any automaton, and is useful when
+	 * computing a larger simulation would be too expensive.
+	 * 
+	 * @param numStates the number of states
+	 * @return the identity relation
+	 */
+	public static SimulationRelation identity(int numStates) {
+		SimulationRelation result = new SimulationRelation(numStates);
+		for (int p = 0; p < numStates; p++) {
+			result.simulators[p] = new StateSet(numStates);
+			result.simulators[p].add(p);
+		}
+		return result;
+	}
+
+	/**
+	 * Compute the (largest) forward simulation on the states of given automaton.
+	 * 
+	 * @param fa a CompactAutomaton with no epsilon transitions
+	 * @return the forward simulation
+	 */
+	public static SimulationRelation forward(CompactAutomaton fa) {
+		int n = fa.getNumStates();
+		char[] alphabet = fa.getAlphabet();
+		checkNoEpsilonTransitions(fa);
+
+		// successors of each state on each symbol
+		int[][][] post = new int[alphabet.length][n][];
+		for (int a = 0; a < alphabet.length; a++) {
+			for (int s = 0; s < n; s++) {
+				int first = fa.findTransition(s, alphabet[a]);
+				int last = first;
+				while (last < fa.getTransitionEnd(s) && fa.getSymbol(last) == alphabet[a]) {
+					last++;
+				}
+				post[a][s] = new int[last - first];
+				for (int i = first; i < last; i++) {
+					post[a][s][i - first] = fa.getTarget(i);
+				}
+			}
+		}
+
+		// a simulating state must be accepting if the simulated state is
+		boolean[] required = new boolean[n];
+		for (int s = 0; s < n; s++) {
+			required[s] = fa.isAccepting(s);
+		}
+
+		return largest(required, post);
+	}
+
+	/**
+	 * Compute the (largest) backward simulation on the states of given automaton.
+	 * 
+	 * State q backward simulates state p if q is the start state whenever
+	 * p is, and for every transition to p from p' on a symbol there is
+	 * a transition to q from some q' on the same symbol such that q'
+	 * backward simulates p'.  If q backward simulates p, then every string
+	 * leading from the start state to p also leads from the start state to q.
+	 * 
+	 * @param fa a CompactAutomaton with no epsilon transitions
+	 * @return the backward simulation
+	 */
+	public static SimulationRelation backward(CompactAutomaton fa) {
+		int n = fa.getNumStates();
+		char[] alphabet = fa.getAlphabet();
+		checkNoEpsilonTransitions(fa);
+
+		// predecessors of each state on each symbol
+		int[][] count = new int[alphabet.length][n];
+		for (int s = 0; s < n; s++) {
+			for (int i = fa.getTransitionStart(s); i < fa.getTransitionEnd(s); i++) {
+				count[Arrays.binarySearch(alphabet, fa.getSymbol(i))][fa.getTarget(i)]++;
+			}
+		}
+		int[][][] pre = new int[alphabet.length][n][];
+		for (int a = 0; a < alphabet.length; a++) {
+			for (int s = 0; s < n; s++) {
+				pre[a][s] = new int[count[a][s]];
+				count[a][s] = 0;
+			}
+		}
+		for (int s = 0; s < n; s++) {
+			for (int i = fa.getTransitionStart(s); i < fa.getTransitionEnd(s); i++) {
+				int a = Arrays.binarySearch(alphabet, fa.getSymbol(i));
+				int t = fa.getTarget(i);
+				pre[a][t][count[a][t]++] = s;
+			}
+		}
+
+		// a simulating state must be the start state if the simulated state is
+		boolean[] required = new boolean[n];
+		required[fa.getStartState()] = true;
+
+		return largest(required, pre);
+	}
+
+	// Compute the largest simulation for given transition relation
+	// (edges[a][s] lists the states reached from s on symbol a), such that
+	// a state can only be simulated by a required state if it is itself required.
+	private static SimulationRelation largest(boolean[] required, int[][][] edges) {
+		int n = required.length;
+		StateSet[][] edgeSets = new StateSet[edges.length][n];
+		for (int a = 0; a < edges.length; a++) {
+			for (int s = 0; s < n; s++) {
+				edgeSets[a][s] = new StateSet(n);
+				for (int t : edges[a][s]) {
+					edgeSets[a][s].add(t);
+				}
+			}
+		}
+
+		SimulationRelation result = new SimulationRelation(n);
+		for (int p = 0; p < n; p++) {
+			StateSet sim = new StateSet(n);
+			for (int q = 0; q < n; q++) {
+				if (required[p] && !required[q]) {
+					continue;
+				}
+				boolean canMatch = true;
+				for (int a = 0; a < edges.length && canMatch; a++) {
+					canMatch = edges[a][p].length == 0 || edges[a][q].length > 0;
+				}
+				if (canMatch) {
+					sim.add(q);
+				}
+			}
+			result.simulators[p] = sim;
+		}
+
+		result.refine(edges, edgeSets);
+		return result;
+	}
+
+	private void refine(int[][][] post, StateSet[][] postSet) {
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int p = 0; p < simulators.length; p++) {
+				StateSet sim = simulators[p];
+				for (int q = sim.nextState(0); q >= 0; q = sim.nextState(q + 1)) {
+					if (q != p && !canSimulate(post, postSet, p, q)) {
+						sim.remove(q);
+						changed = true;
+					}
+				}
+			}
+		}
+	}
+
+	// Check whether every move of p can be matched by a move of q
+	// to a state that (currently) simulates the state p moved to.
+	private boolean canSimulate(int[][][] post, StateSet[][] postSet, int p, int q) {
+		for (int a = 0; a < post.length; a++) {
+			for (int pNext : post[a][p]) {
+				if (!simulators[pNext].intersects(postSet[a][q])) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private static void checkNoEpsilonTransitions(CompactAutomaton fa) {
+		for (int i = 0; i < fa.getNumTransitions(); i++) {
+			if (fa.getSymbol(i) == FiniteAutomaton.EPSILON) {
+				throw new IllegalArgumentException("Simulation requires an automaton without epsilon transitions");
+			}
+		}
+	}
+
+	/**
+	 * Determine whether one state is simulated by another.
+	 * 
+	 * @param p a state number
+	 * @param q a state number
+	 * @return true if q simulates p, false otherwise
+	 */
+	public boolean isSimulatedBy(int p, int q) {
+		return simulators[p].contains(q);
+	}
+
+	/**
+	 * Get the set of states simulating given state.
+	 * The returned StateSet must not be modified.
+	 * 
+	 * @param p a state number
+	 * @return the set of states that simulate p (including p itself)
+	 */
+	public StateSet getSimulators(int p) {
+		return simulators[p];
+	}
+}
@@ -22,10 +22,9 @@
 
 package edu.ycp.cs.dh.regextk;
 
-import java.util.Collections;
-import java.util.Iterator;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * A StateSet represents a set of states in an FiniteAutomaton.
@@ -33,26 +32,64 @@ import java.util.TreeSet;
  * (which, due to nondeterminism, can be in multiple states
  * simultaneously.)
  * 
+ * States are represented by their state numbers, which are stored
+ * in a dense bitset.  The hash code is maintained incrementally
+ * as states are added, so it is never recomputed.
+ * 
  * This class implements the Comparable interface,
  * and defines hashCode and equals methods, so instances of
  * StateSet may be used as keys in TreeSets/TreeMaps
- * and HashSets/HashMaps.
+ * and HashSets/HashMaps.  A StateSet should not be modified
+ * while it is being used as a key.
  */
 public class StateSet implements Comparable<StateSet> {
-	private TreeSet<State> states;
+	private static final long[] EMPTY = new long[0];
+
+	private long[] bits;
+	private int size;
+	private int hash;
 
 	/**
 	 * Constructor.  Initializes an empty set of States.
 	 */
 	public StateSet() {
-		states = new TreeSet<State>();
+		bits = EMPTY;
+	}
+	
+	/**
+	 * Constructor.  Initializes an empty set of States with room
+	 * for states numbered up to (but not including) given number
+	 * without needing to grow.
+	 * 
+	 * @param numStates the expected number of states in the automaton
+	 */
+	public StateSet(int numStates) {
+		bits = new long[(numStates + 63) >>> 6];
+	}
+	
+	/**
+	 * Copy constructor.
+	 * 
+	 * @param other the StateSet to copy
+	 */
+	public StateSet(StateSet other) {
+		bits = other.bits.clone();
+		size = other.size;
+		hash = other.hash;
 	}
 	
 	/**
-	 * @return the Set of States in this StateSet
+	 * Get the States in this StateSet.
+	 * 
+	 * @param fa the FiniteAutomaton the States belong to
+	 * @return List of States in this StateSet, in order of state number
 	 */
-	public SortedSet<State> getStates() {
-		return Collections.unmodifiableSortedSet(states);
+	public List<State> getStates(FiniteAutomaton fa) {
+		List<State> result = new ArrayList<State>(size);
+		for (int s = nextState(0); s >= 0; s = nextState(s + 1)) {
+			result.add(fa.getState(s));
+		}
+		return result;
 	}
 
 	/**
@@ -63,47 +100,217 @@ public class StateSet implements Comparable<StateSet> {
 	 *         false if the State was already a member of this StateSet
 	 */
 	public boolean add(State s) {
-		return states.add(s);
+		return add(s.getNumber());
+	}
+
+	/**
+	 * Add a state to the StateSet.
+	 * 
+	 * @param s the number of the state to add
+	 * @return true if the state is being added to the StateSet for the first time,
+	 *         false if the state was already a member of this StateSet
+	 */
+	public boolean add(int s) {
+		int w = s >>> 6;
+		if (w >= bits.length) {
+			bits = Arrays.copyOf(bits, Math.max(w + 1, bits.length * 2));
+		}
+		long mask = 1L << s;
+		if ((bits[w] & mask) != 0) {
+			return false;
+		}
+		bits[w] |= mask;
+		size++;
+		hash += mix(s);
+		return true;
+	}
+	
+	/**
+	 * Remove a state from the StateSet.
+	 * 
+	 * @param s the number of the state to remove
+	 * @return true if the state was a member of this StateSet,
+	 *         false if it was not
+	 */
+	public boolean remove(int s) {
+		if (!contains(s)) {
+			return false;
+		}
+		bits[s >>> 6] &= ~(1L << s);
+		size--;
+		hash -= mix(s);
+		return true;
+	}
+	
+	/**
+	 * Add all states in given StateSet to this one (set union).
+	 * 
+	 * @param other another StateSet
+	 * @return true if any states were added, false if this StateSet was unchanged
+	 */
+	public boolean addAll(StateSet other) {
+		if (other.bits.length > bits.length) {
+			bits = Arrays.copyOf(bits, other.bits.length);
+		}
+		boolean changed = false;
+		for (int w = 0; w < other.bits.length; w++) {
+			long added = other.bits[w] & ~bits[w];
+			if (added != 0) {
+				bits[w] |= added;
+				updateForWord(w, added, 1);
+				changed = true;
+			}
+		}
+		return changed;
+	}
+	
+	/**
+	 * Remove all states that are not in given StateSet from this one (set intersection).
+	 * 
+	 * @param other another StateSet
+	 * @return true if any states were removed, false if this StateSet was unchanged
+	 */
+	public boolean retainAll(StateSet other) {
+		boolean changed = false;
+		for (int w = 0; w < bits.length; w++) {
+			long removed = bits[w] & ~(w < other.bits.length ? other.bits[w] : 0L);
+			if (removed != 0) {
+				bits[w] &= ~removed;
+				updateForWord(w, removed, -1);
+				changed = true;
+			}
+		}
+		return changed;
+	}
+	
+	/**
+	 * Determine whether given state is a member of this StateSet.
+	 * 
+	 * @param s a state number
+	 * @return true if the state is a member, false otherwise
+	 */
+	public boolean contains(int s) {
+		int w = s >>> 6;
+		return w < bits.length && (bits[w] & (1L << s)) != 0;
+	}
+
+	/**
+	 * Determine whether given State is a member of this StateSet.
+	 * 
+	 * @param s a State
+	 * @return true if the State is a member, false otherwise
+	 */
+	public boolean contains(State s) {
+		return contains(s.getNumber());
+	}
+	
+	/**
+	 * Determine whether every state in given StateSet is also in this one.
+	 * 
+	 * @param other another StateSet
+	 * @return true if other is a subset of this StateSet, false otherwise
+	 */
+	public boolean containsAll(StateSet other) {
+		for (int w = 0; w < other.bits.length; w++) {
+			long mine = w < bits.length ? bits[w] : 0L;
+			if ((other.bits[w] & ~mine) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Determine whether this StateSet has any states in common with given StateSet.
+	 * 
+	 * @param other another StateSet
+	 * @return true if the intersection of the StateSets is non-empty, false otherwise
+	 */
+	public boolean intersects(StateSet other) {
+		int n = Math.min(bits.length, other.bits.length);
+		for (int w = 0; w < n; w++) {
+			if ((bits[w] & other.bits[w]) != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Find the smallest state number in this StateSet that is greater than
+	 * or equal to given state number.  The members of a StateSet can
+	 * be visited in order using a loop of the form
+	 * <pre>
+	 * for (int s = set.nextState(0); s &gt;= 0; s = set.nextState(s + 1)) { ... }
+	 * </pre>
+	 * 
+	 * @param from a state number
+	 * @return the next state number in this StateSet, or -1 if there are no more
+	 */
+	public int nextState(int from) {
+		int w = from >>> 6;
+		if (w >= bits.length) {
+			return -1;
+		}
+		long word = bits[w] & (-1L << from);
+		while (true) {
+			if (word != 0) {
+				return (w << 6) + Long.numberOfTrailingZeros(word);
+			}
+			if (++w >= bits.length) {
+				return -1;
+			}
+			word = bits[w];
+		}
 	}
 
 	/**
 	 * @return true if the StateSet contains no states, false otherwise
 	 */
 	public boolean isEmpty() {
-		return states.isEmpty();
+		return size == 0;
+	}
+	
+	/**
+	 * @return the number of states in the StateSet
+	 */
+	public int size() {
+		return size;
+	}
+	
+	private void updateForWord(int w, long changedBits, int sign) {
+		while (changedBits != 0) {
+			int s = (w << 6) + Long.numberOfTrailingZeros(changedBits);
+			changedBits &= changedBits - 1;
+			size += sign;
+			hash += sign * mix(s);
+		}
+	}
+	
+	private static int mix(int s) {
+		int h = s * 0x9E3779B9;
+		return h ^ (h >>> 16);
 	}
 	
 	@Override
 	public int compareTo(StateSet o) {
-		// this is a lexicographical comparison
-		
-		Iterator<State> i = this.states.iterator();
-		Iterator<State> j = o.states.iterator();
-		
-		while (i.hasNext() && j.hasNext()) {
-			State lhs = i.next();
-			State rhs = j.next();
-			
-			int cmp = lhs.compareTo(rhs);
-			if (cmp != 0) {
-				return cmp;
+		// Compare the lowest-numbered state that is in one StateSet
+		// but not the other: the StateSet containing it is greater.
+		int n = Math.max(this.bits.length, o.bits.length);
+		for (int w = 0; w < n; w++) {
+			long lhs = w < this.bits.length ? this.bits[w] : 0L;
+			long rhs = w < o.bits.length ? o.bits[w] : 0L;
+			long diff = lhs ^ rhs;
+			if (diff != 0) {
+				return (lhs & Long.lowestOneBit(diff)) != 0 ? 1 : -1;
 			}
 		}
-		
-		if (!i.hasNext() && !j.hasNext()) {
-			return 0;
-		}
-		return !i.hasNext() ? -1 : 1;
+		return 0;
 	}
 	
 	@Override
 	public int hashCode() {
-		int code = 0;
-		for (State s : states) {
-			code *= 7;
-			code += s.hashCode();
-		}
-		return code;
+		return hash;
 	}
 	
 	@Override
@@ -112,6 +319,23 @@ public class StateSet implements Comparable<StateSet> {
 			return false;
 		}
 		StateSet other = (StateSet) obj;
-		return this.states.equals(other.states);
+		if (this.size != other.size || this.hash != other.hash) {
+			return false;
+		}
+		return compareTo(other) == 0;
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder buf = new StringBuilder();
+		buf.append('{');
+		for (int s = nextState(0); s >= 0; s = nextState(s + 1)) {
+			if (buf.length() > 1) {
+				buf.append(", ");
+			}
+			buf.append(s);
+		}
+		buf.append('}');
+		return buf.toString();
 	}
 }
@@ -0,0 +1,346 @@
+// RegexToolkit - A Java library for regular expressions and finite automata
+// Copyright (C) 2013, David H. Hovemeyer <david.hovemeyer@gmail.com>
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+// 
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+// IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+// CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+// TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+// SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+
+package edu.ycp.cs.dh.regextk;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Execute a deterministic finite automaton on input supplied in chunks
+ * (e.g., read from a {@link Reader}, a {@link CharBuffer}, or a
+ * {@link ReadableByteChannel}), using the transition table of an
+ * {@link ExecuteDFA} (see {@link ExecuteDFA#createStreamingMatcher()}).
+ * The current state is kept between chunks, so the input never has
+ * to be stored, and whether the input seen so far is accepted can be
+ * checked at any point.
+ * 
+ * Once the automaton has no transition on an input symbol, the input
+ * is rejected no matter what follows, so the remaining input is ignored
+ * (and the methods that read from a Reader or channel stop reading.)
+ */
+public class StreamingMatcher {
+	private static final int DEAD = -1;
+	private static final int BUFFER_SIZE = 8192;
+
+	private final int minCC;
+	private final int[][] table;
+	private final int startState;
+	private final boolean[] acceptingStates;
+
+	private int state;
+	private long numConsumed;
+
+	// decoder for byte input, and bytes of a partially-decoded character
+	private CharsetDecoder decoder;
+	private ByteBuffer undecoded;
+
+	// Create using ExecuteDFA.createStreamingMatcher().
+	StreamingMatcher(int minCC, int[][] table, int startState, boolean[] acceptingStates) {
+		this.minCC = minCC;
+		this.table = table;
+		this.startState = startState;
+		this.acceptingStates = acceptingStates;
+		setCharset(Charset.forName("UTF-8"));
+		reset();
+	}
+
+	/**
+	 * Set the character set used to decode byte input.
+	 * The default is UTF-8.  Malformed input is reported
+	 * as a {@link CharacterCodingException}.
+	 * 
+	 * @param charset the character set
+	 */
+	public void setCharset(Charset charset) {
+		this.decoder = charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPORT)
+				.onUnmappableCharacter(CodingErrorAction.REPORT);
+		this.undecoded = ByteBuffer.allocate(16);
+		this.undecoded.flip();
+	}
+
+	/**
+	 * Go back to the start state, discarding all input seen so far.
+	 */
+	public void reset() {
+		state = startState;
+		numConsumed = 0L;
+		decoder.reset();
+		undecoded.clear();
+		undecoded.flip();
+	}
+
+	/**
+	 * Process one input symbol.
+	 * 
+	 * @param c the input symbol
+	 */
+	public void feed(char c) {
+		if (state == DEAD) {
+			return;
+		}
+		state = step(state, c);
+		if (state != DEAD) {
+			numConsumed++;
+		}
+	}
+
+	/**
+	 * Process a chunk of input.
+	 * 
+	 * @param buf array containing the input symbols
+	 * @param off index of the first input symbol
+	 * @param len number of input symbols
+	 */
+	public void feed(char[] buf, int off, int len) {
+		if (state == DEAD) {
+			return;
+		}
+		int s = state;
+		int end = off + len;
+		int i;
+		for (i = off; i < end && s != DEAD; i++) {
+			s = step(s, buf[i]);
+		}
+		finishChunk(s, i - off);
+	}
+
+	/**
+	 * Process a chunk of input.
+	 * 
+	 * @param seq the input symbols
+	 */
+	public void feed(CharSequence seq) {
+		if (state == DEAD) {
+			return;
+		}
+		int s = state;
+		int len = seq.length();
+		int i;
+		for (i = 0; i < len && s != DEAD; i++) {
+			s = step(s, seq.charAt(i));
+		}
+		finishChunk(s, i);
+	}
+
+	/**
+	 * Process a chunk of input.  All of the remaining characters in
+	 * the buffer are consumed (the buffer's position is set to its limit.)
+	 * 
+	 * @param buf buffer containing the input symbols
+	 */
+	public void feed(CharBuffer buf) {
+		if (state == DEAD) {
+			// ignore the input
+		} else if (buf.hasArray()) {
+			feed(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining());
+		} else {
+			int s = state;
+			int n = 0;
+			while (buf.hasRemaining() && s != DEAD) {
+				s = step(s, buf.get());
+				n++;
+			}
+			finishChunk(s, n);
+		}
+		buf.position(buf.limit());
+	}
+
+	/**
+	 * Process all of the input read from a Reader, until the end
+	 * of the input is reached (or the input is rejected.)
+	 * The Reader is not closed.
+	 * 
+	 * @param reader the Reader
+	 * @throws IOException if an error occurs reading the input
+	 */
+	public void feed(Reader reader) throws IOException {
+		char[] buf = new char[BUFFER_SIZE];
+		int n;
+		while (state != DEAD && (n = reader.read(buf)) >= 0) {
+			feed(buf, 0, n);
+		}
+	}
+
+	/**
+	 * Process a chunk of byte input, decoded using the character
+	 * set (see {@link #setCharset(Charset)}).  If the chunk ends with
+	 * part of an encoded character, those bytes are kept, and decoded
+	 * along with the next chunk.  All of the remaining bytes in the
+	 * buffer are consumed (the buffer's position is set to its limit.)
+	 * Call {@link #finish()} after the last chunk.
+	 * 
+	 * @param bytes buffer containing the input bytes
+	 * @throws CharacterCodingException if the input is not correctly encoded
+	 */
+	public void feed(ByteBuffer bytes) throws CharacterCodingException {
+		if (state == DEAD) {
+			bytes.position(bytes.limit());
+			return;
+		}
+		CharBuffer chars = CharBuffer.allocate(Math.min(BUFFER_SIZE, bytes.remaining() + undecoded.remaining()) + 2);
+		decode(bytes, chars, false);
+	}
+
+	/**
+	 * Signal the end of byte input fed using {@link #feed(ByteBuffer)}.
+	 * The input must not end with part of an encoded character.
+	 * 
+	 * @throws CharacterCodingException if the input ends with part of
+	 *                                  an encoded character
+	 */
+	public void finish() throws CharacterCodingException {
+		if (state == DEAD) {
+			return;
+		}
+		CharBuffer chars = CharBuffer.allocate(undecoded.remaining() + 2);
+		decode(ByteBuffer.allocate(0), chars, true);
+	}
+
+	/**
+	 * Process all of the bytes read from a channel, decoded using
+	 * the character set (see {@link #setCharset(Charset)}), until the
+	 * end of the input is reached (or the input is rejected.)
+	 * The channel is not closed.
+	 * 
+	 * @param channel the channel
+	 * @throws IOException if an error occurs reading the input, or if
+	 *                     the input is not correctly encoded
+	 */
+	public void feed(ReadableByteChannel channel) throws IOException {
+		ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+		CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+		while (state != DEAD && channel.read(bytes) >= 0) {
+			bytes.flip();
+			decode(bytes, chars, false);
+			bytes.clear();
+		}
+		if (state != DEAD) {
+			// the input must not end with part of a character
+			bytes.flip();
+			decode(bytes, chars, true);
+		}
+	}
+
+	/**
+	 * @return true if the input seen so far is accepted, false otherwise
+	 *         (including if byte input ends with part of an encoded character)
+	 */
+	public boolean isAccepting() {
+		return state != DEAD && !undecoded.hasRemaining() && acceptingStates[state];
+	}
+
+	/**
+	 * @return {@link Answer#ACCEPT} if the input seen so far is accepted,
+	 *         {@link Answer#REJECT} otherwise
+	 */
+	public Answer getAnswer() {
+		return isAccepting() ? Answer.ACCEPT : Answer.REJECT;
+	}
+
+	/**
+	 * @return true if the input seen so far is rejected no matter
+	 *         what input follows, because there was no transition
+	 *         on one of the input symbols
+	 */
+	public boolean isRejected() {
+		return state == DEAD;
+	}
+
+	/**
+	 * @return the number of input symbols processed: if the input was
+	 *         rejected, this is the position of the symbol that had no transition
+	 */
+	public long getNumConsumed() {
+		return numConsumed;
+	}
+
+	private int step(int s, char c) {
+		int[] row = table[s];
+		int i = c - minCC;
+		return i >= 0 && i < row.length ? row[i] : DEAD;
+	}
+
+	// Record the state and the number of symbols consumed after
+	// processing a chunk of n symbols (the last of which had no
+	// transition if the new state is DEAD).
+	private void finishChunk(int s, int n) {
+		state = s;
+		numConsumed += s == DEAD ? n - 1 : n;
+	}
+
+	// Decode bytes (preceded by any undecoded bytes from the previous chunk)
+	// and process the resulting characters.
+	private void decode(ByteBuffer bytes, CharBuffer chars, boolean endOfInput) throws CharacterCodingException {
+		ByteBuffer in = bytes;
+		if (undecoded.hasRemaining()) {
+			// prepend the bytes left over from the previous chunk
+			in = ByteBuffer.allocate(undecoded.remaining() + bytes.remaining());
+			in.put(undecoded).put(bytes).flip();
+			bytes.position(bytes.limit());
+		}
+
+		while (true) {
+			CoderResult result = decoder.decode(in, chars, endOfInput);
+			if (result.isError()) {
+				result.throwException();
+			}
+			chars.flip();
+			feed(chars);
+			chars.clear();
+			if (result.isUnderflow() || state == DEAD) {
+				break;
+			}
+		}
+		if (endOfInput && state != DEAD) {
+			CoderResult result = decoder.flush(chars);
+			if (result.isError()) {
+				result.throwException();
+			}
+			chars.flip();
+			feed(chars);
+			chars.clear();
+			decoder.reset();
+		}
+
+		// keep the bytes of a partial character for the next chunk
+		// (unless the input has been rejected, in which case they are ignored)
+		if (state == DEAD) {
+			in.position(in.limit());
+		}
+		if (undecoded.capacity() < in.remaining()) {
+			undecoded = ByteBuffer.allocate(in.remaining());
+		}
+		undecoded.clear();
+		undecoded.put(in).flip();
+	}
+}
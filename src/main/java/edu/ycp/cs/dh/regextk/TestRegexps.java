@@ -41,10 +41,8 @@ public class TestRegexps {
 		ConvertRegexpToNFA re2nfa = new ConvertRegexpToNFA(regexp);
 		FiniteAutomaton nfa = re2nfa.convertToNFA();
 		
-		// Convert NFA to DFA
-		ConvertNFAToDFA nfa2dfa = new ConvertNFAToDFA();
-		nfa2dfa.add(nfa);
-		FiniteAutomaton dfa = nfa2dfa.execute(FiniteAutomatonTransformerMode.DESTRUCTIVE);
+		// Convert NFA to (minimal) DFA
+		FiniteAutomaton dfa = FiniteAutomatonUtil.convertToDFA(nfa, true);
 		
 		// Allow the user to enter example strings, test them against the DFA
 		System.out.println("Enter strings (type 'quit' when done)");
@@ -0,0 +1,130 @@
+// RegexToolkit - A Java library for regular expressions and finite automata
+// Copyright (C) 2013, David H. Hovemeyer <david.hovemeyer@gmail.com>
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+// 
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+// IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+// CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+// TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+// SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+
+package edu.ycp.cs.dh.regextk;
+
+/**
+ * Transform a FiniteAutomaton into an equivalent one containing only
+ * the useful states: those which are reachable from the start state, and
+ * from which an accepting state is reachable.  The remaining states
+ * are numbered consecutively, in the same order as in the original.
+ * 
+ * The start state is always kept, so if the automaton recognizes
+ * the empty language, the result has a single (nonaccepting) state
+ * and no transitions.  Note that the result may be missing transitions
+ * even if the input automaton is deterministic and complete, since
+ * "reject" states are removed.
+ */
+public class Trim extends SingleInputFiniteAutomatonTransformer implements FiniteAutomatonTransformer {
+	@Override
+	public FiniteAutomaton execute(FiniteAutomatonTransformerMode mode) {
+		// This transformer is always nondestructive
+		CompactAutomaton ca = new CompactAutomaton(getInput());
+		int n = ca.getNumStates();
+		
+		// forward pass: find states reachable from the start state
+		boolean[] reachable = new boolean[n];
+		int[] workList = new int[n];
+		int top = 0;
+		reachable[ca.getStartState()] = true;
+		workList[top++] = ca.getStartState();
+		while (top > 0) {
+			int s = workList[--top];
+			for (int i = ca.getTransitionStart(s); i < ca.getTransitionEnd(s); i++) {
+				int t = ca.getTarget(i);
+				if (!reachable[t]) {
+					reachable[t] = true;
+					workList[top++] = t;
+				}
+			}
+		}
+		
+		// group the transitions between reachable states by target state
+		int[] predStart = new int[n + 1];
+		for (int s = 0; s < n; s++) {
+			if (reachable[s]) {
+				for (int i = ca.getTransitionStart(s); i < ca.getTransitionEnd(s); i++) {
+					predStart[ca.getTarget(i) + 1]++;
+				}
+			}
+		}
+		for (int s = 0; s < n; s++) {
+			predStart[s + 1] += predStart[s];
+		}
+		int[] pred = new int[predStart[n]];
+		int[] fill = new int[n];
+		for (int s = 0; s < n; s++) {
+			if (reachable[s]) {
+				for (int i = ca.getTransitionStart(s); i < ca.getTransitionEnd(s); i++) {
+					int t = ca.getTarget(i);
+					pred[predStart[t] + fill[t]++] = s;
+				}
+			}
+		}
+		
+		// backward pass: find reachable states from which a
+		// reachable accepting state can be reached
+		boolean[] useful = new boolean[n];
+		for (int s = 0; s < n; s++) {
+			if (reachable[s] && ca.isAccepting(s)) {
+				useful[s] = true;
+				workList[top++] = s;
+			}
+		}
+		while (top > 0) {
+			int t = workList[--top];
+			for (int i = predStart[t]; i < predStart[t + 1]; i++) {
+				int s = pred[i];
+				if (!useful[s]) {
+					useful[s] = true;
+					workList[top++] = s;
+				}
+			}
+		}
+		boolean emptyLanguage = !useful[ca.getStartState()];
+		useful[ca.getStartState()] = true;
+		
+		// copy the useful states and the transitions between them
+		FiniteAutomaton result = new FiniteAutomaton();
+		State[] states = new State[n];
+		for (int s = 0; s < n; s++) {
+			if (useful[s]) {
+				states[s] = result.createState();
+				states[s].setStart(s == ca.getStartState());
+				states[s].setAccepting(ca.isAccepting(s));
+			}
+		}
+		for (int s = 0; s < n && !emptyLanguage; s++) {
+			if (useful[s]) {
+				for (int i = ca.getTransitionStart(s); i < ca.getTransitionEnd(s); i++) {
+					int t = ca.getTarget(i);
+					if (useful[t]) {
+						result.createTransition(states[s], states[t], ca.getSymbol(i));
+					}
+				}
+			}
+		}
+		
+		return result;
+	}
+}
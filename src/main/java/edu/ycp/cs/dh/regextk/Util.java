@@ -22,7 +22,36 @@
 
 package edu.ycp.cs.dh.regextk;
 
+import java.util.Iterator;
+import java.util.List;
+
 public class Util {
+	/**
+	 * Prefix of the command line option used to choose an {@link EquivalenceCheckStrategy}.
+	 */
+	public static final String STRATEGY_OPTION = "--strategy=";
+	
+	/**
+	 * Find and remove the {@link #STRATEGY_OPTION} option
+	 * (e.g., "--strategy=hkc") from a list of command line arguments.
+	 * 
+	 * @param args the command line arguments: the option, if present, is removed
+	 * @return the {@link EquivalenceCheckStrategy} chosen by the option,
+	 *         or null if the option was not given
+	 * @throws IllegalArgumentException if the option names an unknown strategy
+	 */
+	public static EquivalenceCheckStrategy removeStrategyOption(List<String> args) {
+		EquivalenceCheckStrategy strategy = null;
+		for (Iterator<String> i = args.iterator(); i.hasNext(); ) {
+			String arg = i.next();
+			if (arg.startsWith(STRATEGY_OPTION)) {
+				strategy = EquivalenceCheckStrategy.fromName(arg.substring(STRATEGY_OPTION.length()));
+				i.remove();
+			}
+		}
+		return strategy;
+	}
+	
 	/**
 	 * Print examples of strings accepted by specified
 	 * {@link FiniteAutomaton}.
@@ -33,7 +62,16 @@ public class Util {
 	public static void printExamples(FiniteAutomaton fa, int maxStrings) {
 		GenerateMembers gen = new GenerateMembers(fa);
 		gen.execute(maxStrings);
-		for (String s : gen.getResultList()) {
+		printExamples(gen.getResultList());
+	}
+
+	/**
+	 * Print example strings (e.g., found by {@link LazyDifference}).
+	 * 
+	 * @param examples the strings to print
+	 */
+	public static void printExamples(List<String> examples) {
+		for (String s : examples) {
 			if (s.equals("")) {
 				s = "" + FiniteAutomaton.EPSILON;
 			}